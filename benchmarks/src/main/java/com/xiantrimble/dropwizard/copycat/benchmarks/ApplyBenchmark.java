@@ -0,0 +1,111 @@
+/**
+ * Copyright (C) 2015 Christian Trimble (xiantrimble@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xiantrimble.dropwizard.copycat.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.xiantrimble.dropwizard.copycat.MapMachine;
+import com.xiantrimble.dropwizard.copycat.example.ExampleStateMachine;
+
+import io.atomix.copycat.Operation;
+import io.atomix.copycat.Query.ConsistencyLevel;
+import io.atomix.copycat.server.StateMachine;
+
+/**
+ * Applies commands and queries to a state machine through the callbacks it registers, without a
+ * server, so the numbers are the state machine's own cost.  The example state machine stores
+ * documents, and the test map machine stores strings.  Operations cycle over a fixed set of keys.
+ *
+ * @author Christian Trimble
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ApplyBenchmark {
+
+  @Param({ "example", "map" })
+  public String machine;
+
+  @Param({ "10000", "1000000" })
+  public int keys;
+
+  SyntheticExecutor executor;
+  Operation<?>[] commands;
+  Operation<?>[] queries;
+  int next;
+
+  @Setup
+  public void setUp() {
+    JsonNode document = JsonNodes.document(8);
+    StateMachine stateMachine;
+    commands = new Operation<?>[keys];
+    queries = new Operation<?>[keys];
+    switch (machine) {
+      case "example":
+        stateMachine = new ExampleStateMachine();
+        for (int i = 0; i < keys; i++) {
+          commands[i] = new ExampleStateMachine.SetValue().withKey("key" + i).withNode(document);
+          queries[i] = new ExampleStateMachine.GetValue().withKey("key" + i).withConsistency(ConsistencyLevel.SEQUENTIAL);
+        }
+        break;
+      case "map":
+        stateMachine = new MapMachine.TestStateMachine();
+        for (int i = 0; i < keys; i++) {
+          commands[i] = new MapMachine.TestPut("key" + i, "value" + i);
+          queries[i] = new MapMachine.TestGet("key" + i, ConsistencyLevel.SEQUENTIAL);
+        }
+        break;
+      default:
+        throw new IllegalArgumentException("unknown state machine " + machine);
+    }
+    executor = SyntheticExecutor.init(stateMachine);
+    for (Operation<?> command : commands) {
+      executor.apply(command);
+    }
+  }
+
+  @Benchmark
+  public Object command() {
+    return executor.apply(commands[next()]);
+  }
+
+  @Benchmark
+  public Object query() {
+    return executor.apply(queries[next()]);
+  }
+
+  int next() {
+    int index = next;
+    next = index + 1 == keys ? 0 : index + 1;
+    return index;
+  }
+}
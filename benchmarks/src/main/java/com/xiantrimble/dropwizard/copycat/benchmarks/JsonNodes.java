@@ -0,0 +1,56 @@
+/**
+ * Copyright (C) 2015 Christian Trimble (xiantrimble@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xiantrimble.dropwizard.copycat.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Builds documents shaped like the values stored by the example application: a flat object of
+ * strings and numbers, with a nested object and an array every eight fields.
+ *
+ * @author Christian Trimble
+ */
+public class JsonNodes {
+
+  /**
+   * Returns a document with the number of top level fields.
+   */
+  public static JsonNode document(int fields) {
+    ObjectNode node = JsonNodeFactory.instance.objectNode();
+    for (int i = 0; i < fields; i++) {
+      String name = "field" + i;
+      switch (i % 8) {
+        case 3:
+          node.put(name, i * 31L);
+          break;
+        case 5:
+          node.put(name, i / 7.0);
+          break;
+        case 6:
+          node.putObject(name).put("id", i).put("name", "nested " + i).put("active", i % 2 == 0);
+          break;
+        case 7:
+          node.putArray(name).add("alpha").add("beta").add(i);
+          break;
+        default:
+          node.put(name, "value of field " + i);
+      }
+    }
+    return node;
+  }
+}
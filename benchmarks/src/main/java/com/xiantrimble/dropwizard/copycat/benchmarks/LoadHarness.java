@@ -0,0 +1,321 @@
+/**
+ * Copyright (C) 2015 Christian Trimble (xiantrimble@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xiantrimble.dropwizard.copycat.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.HdrHistogram.Recorder;
+import org.apache.commons.io.FileUtils;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.xiantrimble.dropwizard.copycat.CopycatClusterRule;
+import com.xiantrimble.dropwizard.copycat.SimulatedNetwork;
+import com.xiantrimble.dropwizard.copycat.example.ExampleStateMachine;
+
+import io.atomix.catalyst.transport.Transport;
+import io.atomix.catalyst.transport.netty.NettyTransport;
+import io.atomix.copycat.Query.ConsistencyLevel;
+import io.atomix.copycat.client.CopycatClient;
+import io.atomix.copycat.server.CopycatServer;
+import io.atomix.copycat.server.storage.Storage;
+import io.atomix.copycat.server.storage.StorageLevel;
+
+/**
+ * Drives an in-process cluster with concurrent clients for a fixed time, and writes the throughput
+ * and latency percentiles of each run to a JSON file.  Each client keeps a fixed number of
+ * operations outstanding, choosing commands or queries on random keys of the example state
+ * machine.  Every combination of the storage levels, transports and serializers given is run in
+ * turn, so they can be compared from one invocation.
+ *
+ * Options are passed as name=value arguments, with lists separated by commas:
+ *
+ * <pre>
+ * servers=3 clients=8 inFlight=1 warmup=5 duration=30 queryRatio=0.5 keys=10000 fields=8
+ * consistency=SEQUENTIAL storage=MEMORY,DISK transport=local,netty serializer=smile
+ * output=target/load-results.json directory=target/load-harness
+ * latency=0 jitter=0 bandwidth=0 loss=0
+ * </pre>
+ *
+ * A latency, jitter (both in milliseconds), bandwidth (in bytes per second) or loss fraction puts a
+ * {@link SimulatedNetwork} with those conditions on every link between the members and clients.
+ * The network delays messages on Catalyst threads, so it is meant for the local transport.
+ *
+ * The serializers are those of {@link SerializationBenchmark}.  The generic Jackson serializer reads
+ * past the end of its values, so it only works over the local transport.
+ *
+ * Latencies are measured from submission to completion of each operation, so with a closed loop
+ * of clients they do not include time an operation would have waited to be sent.
+ *
+ * @author Christian Trimble
+ */
+public class LoadHarness {
+  static final long HIGHEST_LATENCY_US = TimeUnit.MINUTES.toMicros(1);
+
+  public static class Options {
+    int servers = 3;
+    int clients = 8;
+    int inFlight = 1;
+    int warmup = 5;
+    int duration = 30;
+    double queryRatio = 0.5;
+    int keys = 10000;
+    int fields = 8;
+    ConsistencyLevel consistency = ConsistencyLevel.SEQUENTIAL;
+    List<String> storage = Arrays.asList("MEMORY");
+    List<String> transport = Arrays.asList("local");
+    List<String> serializer = Arrays.asList("smile");
+    long latency = 0;
+    long jitter = 0;
+    long bandwidth = 0;
+    double loss = 0;
+    File output = new File("target/load-results.json");
+    File directory = new File("target/load-harness");
+
+    public static Options parse(String... args) {
+      Options options = new Options();
+      for (String arg : args) {
+        int split = arg.indexOf('=');
+        if (split < 0) {
+          throw new IllegalArgumentException("options are name=value pairs, found " + arg);
+        }
+        String value = arg.substring(split + 1);
+        switch (arg.substring(0, split).replaceFirst("^-+", "")) {
+          case "servers": options.servers = Integer.parseInt(value); break;
+          case "clients": options.clients = Integer.parseInt(value); break;
+          case "inFlight": options.inFlight = Integer.parseInt(value); break;
+          case "warmup": options.warmup = Integer.parseInt(value); break;
+          case "duration": options.duration = Integer.parseInt(value); break;
+          case "queryRatio": options.queryRatio = Double.parseDouble(value); break;
+          case "keys": options.keys = Integer.parseInt(value); break;
+          case "fields": options.fields = Integer.parseInt(value); break;
+          case "consistency": options.consistency = ConsistencyLevel.valueOf(value.toUpperCase()); break;
+          case "storage": options.storage = Arrays.asList(value.toUpperCase().split(",")); break;
+          case "transport": options.transport = Arrays.asList(value.split(",")); break;
+          case "serializer": options.serializer = Arrays.asList(value.split(",")); break;
+          case "latency": options.latency = Long.parseLong(value); break;
+          case "jitter": options.jitter = Long.parseLong(value); break;
+          case "bandwidth": options.bandwidth = Long.parseLong(value); break;
+          case "loss": options.loss = Double.parseDouble(value); break;
+          case "output": options.output = new File(value); break;
+          case "directory": options.directory = new File(value); break;
+          default: throw new IllegalArgumentException("unknown option " + arg);
+        }
+      }
+      return options;
+    }
+
+    /**
+     * Returns the conditions of every link between members and clients, or null to use the
+     * transport directly.
+     */
+    SimulatedNetwork.Link link() {
+      if (latency == 0 && jitter == 0 && bandwidth == 0 && loss == 0) {
+        return null;
+      }
+      return SimulatedNetwork.Link.latency(Duration.ofMillis(latency))
+          .withJitter(Duration.ofMillis(jitter))
+          .withBandwidth(bandwidth)
+          .withLoss(loss, SimulatedNetwork.Link.NONE.getRetransmit());
+    }
+  }
+
+  public static void main(String[] args) throws Throwable {
+    Options options = Options.parse(args);
+    List<LoadResult> results = new ArrayList<>();
+    int port = 5000;
+    for (String storage : options.storage) {
+      for (String transport : options.transport) {
+        for (String serializer : options.serializer) {
+          LoadResult result = new LoadHarness(options).run(storage, transport, serializer, port);
+          System.out.println(result);
+          results.add(result);
+          port += options.servers + 1;
+        }
+      }
+    }
+    File parent = options.output.getAbsoluteFile().getParentFile();
+    parent.mkdirs();
+    new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(options.output, results);
+    System.exit(0);
+  }
+
+  private final Options options;
+  private final JsonNode document;
+  private final Recorder commands = new Recorder(HIGHEST_LATENCY_US, 3);
+  private final Recorder queries = new Recorder(HIGHEST_LATENCY_US, 3);
+  private final LongAdder errors = new LongAdder();
+  private long measureFrom;
+  private long measureTo;
+
+  public LoadHarness(Options options) {
+    this.options = options;
+    this.document = JsonNodes.document(options.fields);
+  }
+
+  /**
+   * Starts a cluster with the storage level, transport and serializer, and runs the load against
+   * it.
+   */
+  public LoadResult run(String storage, String transport, String serializer, int port) throws Throwable {
+    CopycatClusterRule<ExampleStateMachine> cluster = CopycatClusterRule.<ExampleStateMachine>builder()
+        .withServerCount(options.servers)
+        .withInitalPort(port)
+        .withStateMachineSupplier(ExampleStateMachine::new)
+        .withStorageSupplier(storage(StorageLevel.valueOf(storage), new File(options.directory, storage + "-" + transport + "-" + serializer)))
+        .withTransportSupplier(transport(transport, options.link()))
+        .withSerializer(() -> SerializationBenchmark.serializer(serializer))
+        .build();
+
+    AtomicReference<LoadResult> result = new AtomicReference<>();
+    cluster.apply(new Statement() {
+      @Override
+      public void evaluate() throws Throwable {
+        List<CopycatClient> clients = new ArrayList<>();
+        try {
+          for (int i = 0; i < options.clients; i++) {
+            clients.add(cluster.createClient());
+          }
+          long durationNanos = load(clients);
+          result.set(new LoadResult(storage, transport, serializer, options, durationNanos, errors.sum(),
+              commands.getIntervalHistogram(), queries.getIntervalHistogram()));
+        } finally {
+          shutdown(cluster, clients);
+        }
+      }
+    }, Description.EMPTY).evaluate();
+    return result.get();
+  }
+
+  /**
+   * Runs the operations of every client until the duration has passed, returning the time
+   * measured.
+   */
+  long load(List<CopycatClient> clients) throws InterruptedException {
+    long start = System.nanoTime();
+    measureFrom = start + TimeUnit.SECONDS.toNanos(options.warmup);
+    measureTo = measureFrom + TimeUnit.SECONDS.toNanos(options.duration);
+
+    CountDownLatch done = new CountDownLatch(clients.size() * options.inFlight);
+    for (CopycatClient client : clients) {
+      for (int i = 0; i < options.inFlight; i++) {
+        next(client, done);
+      }
+    }
+    done.await(options.warmup + options.duration + 60, TimeUnit.SECONDS);
+    return measureTo - measureFrom;
+  }
+
+  /**
+   * Submits the next operation of a client, and submits another when it completes.
+   */
+  void next(CopycatClient client, CountDownLatch done) {
+    long begin = System.nanoTime();
+    if (begin >= measureTo) {
+      done.countDown();
+      return;
+    }
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    String key = "key" + random.nextInt(options.keys);
+    boolean query = random.nextDouble() < options.queryRatio;
+    (query
+        ? client.submit(new ExampleStateMachine.GetValue().withKey(key).withConsistency(options.consistency))
+        : client.submit(new ExampleStateMachine.SetValue().withKey(key).withNode(document)))
+        .whenComplete((value, error) -> {
+          if (begin >= measureFrom) {
+            if (error != null) {
+              errors.increment();
+            } else {
+              long micros = Math.min(HIGHEST_LATENCY_US, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - begin));
+              (query ? queries : commands).recordValue(micros);
+            }
+          }
+          next(client, done);
+        });
+  }
+
+  /**
+   * Stops the clients and servers without removing the servers from the cluster, so a slow
+   * cluster cannot hold up the next run while its members leave.
+   */
+  static void shutdown(CopycatClusterRule<?> cluster, List<CopycatClient> clients) {
+    try {
+      CompletableFuture.allOf(clients.stream().map(CopycatClient::close).toArray(CompletableFuture<?>[]::new))
+          .get(10, TimeUnit.SECONDS);
+    } catch (Exception e) {
+      System.err.printf("clients did not close: %s%n", e);
+    }
+    for (CopycatServer server : cluster.getServers()) {
+      try {
+        server.shutdown().get(10, TimeUnit.SECONDS);
+      } catch (Exception e) {
+        System.err.printf("server %s did not shut down: %s%n", server.cluster().member().address(), e);
+      }
+    }
+  }
+
+  static Supplier<Transport> transport(String name, SimulatedNetwork.Link link) {
+    return link == null ? transport(name) : new SimulatedNetwork(link).transports(transport(name));
+  }
+
+  static Supplier<Transport> transport(String name) {
+    switch (name) {
+      case "local":
+        return CopycatClusterRule.DEFAULT_TRANSPORT_SUPPLIER.get();
+      case "netty":
+        return NettyTransport::new;
+      default:
+        throw new IllegalArgumentException("unknown transport " + name);
+    }
+  }
+
+  static Supplier<Storage> storage(StorageLevel level, File directory) {
+    if (level == StorageLevel.MEMORY) {
+      return CopycatClusterRule.DEFAULT_STORAGE_SUPPLIER;
+    }
+    AtomicInteger index = new AtomicInteger();
+    return () -> {
+      File server = new File(directory, "server_" + index.getAndIncrement());
+      try {
+        FileUtils.deleteDirectory(server);
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+      server.mkdirs();
+      return Storage.builder()
+          .withDirectory(server)
+          .withStorageLevel(level)
+          .withMaxSegmentSize(32 * 1024 * 1024)
+          .build();
+    };
+  }
+}
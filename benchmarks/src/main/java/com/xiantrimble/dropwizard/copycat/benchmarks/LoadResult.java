@@ -0,0 +1,186 @@
+/**
+ * Copyright (C) 2015 Christian Trimble (xiantrimble@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xiantrimble.dropwizard.copycat.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * The outcome of one load harness run, written to the results file as JSON.
+ *
+ * @author Christian Trimble
+ */
+public class LoadResult {
+
+  /**
+   * Latency percentiles of one kind of operation, in microseconds.
+   */
+  public static class Latency {
+    private long count;
+    private double mean;
+    private long p50;
+    private long p90;
+    private long p99;
+    private long p999;
+    private long max;
+
+    public static Latency of(Histogram histogram) {
+      Latency latency = new Latency();
+      latency.count = histogram.getTotalCount();
+      latency.mean = histogram.getMean();
+      latency.p50 = histogram.getValueAtPercentile(50);
+      latency.p90 = histogram.getValueAtPercentile(90);
+      latency.p99 = histogram.getValueAtPercentile(99);
+      latency.p999 = histogram.getValueAtPercentile(99.9);
+      latency.max = histogram.getMaxValue();
+      return latency;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public double getMean() {
+      return mean;
+    }
+
+    public long getP50() {
+      return p50;
+    }
+
+    public long getP90() {
+      return p90;
+    }
+
+    public long getP99() {
+      return p99;
+    }
+
+    public long getP999() {
+      return p999;
+    }
+
+    public long getMax() {
+      return max;
+    }
+  }
+
+  private String storage;
+  private String transport;
+  private String serializer;
+  private int servers;
+  private int clients;
+  private double queryRatio;
+  private long latencyMs;
+  private long jitterMs;
+  private long bandwidth;
+  private double loss;
+  private long durationMs;
+  private long errors;
+  private double throughput;
+  private Latency commands;
+  private Latency queries;
+
+  public LoadResult(String storage, String transport, String serializer, LoadHarness.Options options, long durationNanos,
+      long errors, Histogram commands, Histogram queries) {
+    this.storage = storage;
+    this.transport = transport;
+    this.serializer = serializer;
+    this.servers = options.servers;
+    this.clients = options.clients;
+    this.queryRatio = options.queryRatio;
+    this.latencyMs = options.latency;
+    this.jitterMs = options.jitter;
+    this.bandwidth = options.bandwidth;
+    this.loss = options.loss;
+    this.durationMs = TimeUnit.NANOSECONDS.toMillis(durationNanos);
+    this.errors = errors;
+    this.throughput = (commands.getTotalCount() + queries.getTotalCount()) * 1e9 / durationNanos;
+    this.commands = Latency.of(commands);
+    this.queries = Latency.of(queries);
+  }
+
+  public String getStorage() {
+    return storage;
+  }
+
+  public String getTransport() {
+    return transport;
+  }
+
+  public String getSerializer() {
+    return serializer;
+  }
+
+  public int getServers() {
+    return servers;
+  }
+
+  public int getClients() {
+    return clients;
+  }
+
+  public double getQueryRatio() {
+    return queryRatio;
+  }
+
+  public long getLatencyMs() {
+    return latencyMs;
+  }
+
+  public long getJitterMs() {
+    return jitterMs;
+  }
+
+  public long getBandwidth() {
+    return bandwidth;
+  }
+
+  public double getLoss() {
+    return loss;
+  }
+
+  public long getDurationMs() {
+    return durationMs;
+  }
+
+  public long getErrors() {
+    return errors;
+  }
+
+  /**
+   * Completed operations per second.
+   */
+  public double getThroughput() {
+    return throughput;
+  }
+
+  public Latency getCommands() {
+    return commands;
+  }
+
+  public Latency getQueries() {
+    return queries;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s/%s/%s: %,.0f ops/s, %d errors, command p50/p99/p999 %d/%d/%d us, query p50/p99/p999 %d/%d/%d us",
+        storage, transport, serializer, throughput, errors, commands.p50, commands.p99, commands.p999, queries.p50,
+        queries.p99, queries.p999);
+  }
+}
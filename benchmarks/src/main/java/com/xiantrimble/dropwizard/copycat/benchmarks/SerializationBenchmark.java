@@ -0,0 +1,120 @@
+/**
+ * Copyright (C) 2015 Christian Trimble (xiantrimble@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xiantrimble.dropwizard.copycat.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xiantrimble.dropwizard.copycat.CopycatBundle;
+import com.xiantrimble.dropwizard.copycat.ObjectMapperClusterTest;
+import com.xiantrimble.dropwizard.copycat.SmileTypeSerializerFactory;
+import com.xiantrimble.dropwizard.copycat.example.ExampleStateMachine.SetValue;
+
+import io.atomix.catalyst.buffer.Buffer;
+import io.atomix.catalyst.buffer.HeapBuffer;
+import io.atomix.catalyst.serializer.Serializer;
+import io.atomix.catalyst.serializer.util.CatalystSerializableSerializer;
+
+/**
+ * Writes and reads a set value command, carrying documents of several sizes, with each of the
+ * serializers the project uses:
+ *
+ * <ul>
+ * <li>catalyst - the command writes itself as a CatalystSerializable, and the document is written
+ * as JSON by an object mapper type serializer.</li>
+ * <li>generic-jackson - the whole command is written as JSON through Catalyst's stream adapters,
+ * like the serializer in ObjectMapperClusterTest.</li>
+ * <li>smile - the command writes itself as a CatalystSerializable, and the document is written as
+ * Smile, like the example application.</li>
+ * </ul>
+ *
+ * The bytes of each encoding are printed when the trial starts.
+ *
+ * @author Christian Trimble
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+  @Param({ "catalyst", "generic-jackson", "smile" })
+  public String serializer;
+
+  @Param({ "8", "64", "512" })
+  public int fields;
+
+  Serializer catalyst;
+  SetValue value;
+  Buffer output;
+  Buffer input;
+
+  @Setup
+  public void setUp() {
+    catalyst = serializer(serializer);
+    value = new SetValue().withKey("key").withNode(JsonNodes.document(fields));
+    output = HeapBuffer.allocate(1024, Integer.MAX_VALUE);
+    input = catalyst.writeObject(value, HeapBuffer.allocate(1024, Integer.MAX_VALUE)).flip();
+    System.out.printf("%n%s with %d fields: %,d bytes%n", serializer, fields, input.remaining());
+  }
+
+  @Benchmark
+  public Buffer write() {
+    return catalyst.writeObject(value, output.clear());
+  }
+
+  @Benchmark
+  public SetValue read() {
+    return catalyst.readObject(input.rewind());
+  }
+
+  /**
+   * Returns the serializer with the name.  Set value commands are registered explicitly, since
+   * Catalyst may otherwise resolve them to Java serialization once a serializable query has been
+   * written.
+   */
+  public static Serializer serializer(String name) {
+    switch (name) {
+      case "catalyst":
+        ObjectMapper mapper = new ObjectMapper();
+        return new Serializer()
+            .register(SetValue.class, type -> new CatalystSerializableSerializer<>())
+            .registerAbstract(JsonNode.class, type -> CopycatBundle.objectMapperSerializer(mapper));
+      case "generic-jackson":
+        return new Serializer().register(SetValue.class, new ObjectMapperClusterTest.ObjectMapperTypeSerializerFactory());
+      case "smile":
+        return new SmileTypeSerializerFactory().register(new Serializer(), JsonNode.class)
+            .register(SetValue.class, type -> new CatalystSerializableSerializer<>());
+      default:
+        throw new IllegalArgumentException("unknown serializer " + name);
+    }
+  }
+}
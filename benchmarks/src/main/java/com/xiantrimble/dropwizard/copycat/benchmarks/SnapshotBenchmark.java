@@ -0,0 +1,151 @@
+/**
+ * Copyright (C) 2015 Christian Trimble (xiantrimble@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xiantrimble.dropwizard.copycat.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.xiantrimble.dropwizard.copycat.MapMachine;
+import com.xiantrimble.dropwizard.copycat.SmileTypeSerializerFactory;
+import com.xiantrimble.dropwizard.copycat.example.ExampleStateMachine;
+
+import io.atomix.catalyst.serializer.Serializer;
+import io.atomix.copycat.server.Snapshottable;
+import io.atomix.copycat.server.StateMachine;
+import io.atomix.copycat.server.storage.Storage;
+import io.atomix.copycat.server.storage.StorageLevel;
+import io.atomix.copycat.server.storage.snapshot.Snapshot;
+import io.atomix.copycat.server.storage.snapshot.SnapshotReader;
+import io.atomix.copycat.server.storage.snapshot.SnapshotStore;
+import io.atomix.copycat.server.storage.snapshot.SnapshotWriter;
+
+/**
+ * Writes and installs snapshots of state machines holding many keys, in memory and on disk.
+ * Documents are written as Smile, like the example application.  Every key of the example state
+ * machine shares one document, so the largest maps fit in a reasonable heap.
+ *
+ * @author Christian Trimble
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class SnapshotBenchmark {
+
+  @Param({ "example", "map" })
+  public String machine;
+
+  @Param({ "10000", "100000", "1000000", "10000000" })
+  public int keys;
+
+  @Param({ "MEMORY", "DISK" })
+  public StorageLevel level;
+
+  Path directory;
+  StateMachine source;
+  StateMachine target;
+  SnapshotStore writes;
+  Snapshot installed;
+  long index;
+
+  @Setup
+  public void setUp() throws IOException {
+    source = stateMachine();
+    target = stateMachine();
+    SyntheticExecutor.init(target);
+    fill(SyntheticExecutor.init(source));
+
+    Storage.Builder storage = Storage.builder().withStorageLevel(level);
+    if (level != StorageLevel.MEMORY) {
+      directory = Files.createTempDirectory("snapshot-benchmark");
+      storage.withDirectory(directory.toFile());
+    }
+    Serializer serializer = new SmileTypeSerializerFactory().register(new Serializer(), JsonNode.class);
+    writes = new SnapshotStore("writes", storage.build(), serializer);
+    installed = write(new SnapshotStore("installs", storage.build(), serializer));
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    installed.close();
+    if (directory != null) {
+      Files.walk(directory).sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+    }
+  }
+
+  @Benchmark
+  public Snapshot snapshot() {
+    return write(writes);
+  }
+
+  @Benchmark
+  public StateMachine install() {
+    try (SnapshotReader reader = installed.reader()) {
+      ((Snapshottable) target).install(reader);
+    }
+    return target;
+  }
+
+  Snapshot write(SnapshotStore store) {
+    Snapshot snapshot = store.createSnapshot(++index);
+    try (SnapshotWriter writer = snapshot.writer()) {
+      ((Snapshottable) source).snapshot(writer);
+    }
+    return snapshot.complete();
+  }
+
+  StateMachine stateMachine() {
+    switch (machine) {
+      case "example":
+        return new ExampleStateMachine();
+      case "map":
+        return new MapMachine.TestStateMachine();
+      default:
+        throw new IllegalArgumentException("unknown state machine " + machine);
+    }
+  }
+
+  void fill(SyntheticExecutor executor) {
+    JsonNode document = JsonNodes.document(8);
+    for (int i = 0; i < keys; i++) {
+      if (source instanceof ExampleStateMachine) {
+        executor.apply(new ExampleStateMachine.SetValue().withKey("key" + i).withNode(document));
+      } else {
+        executor.apply(new MapMachine.TestPut("key" + i, "value" + i));
+      }
+    }
+  }
+}
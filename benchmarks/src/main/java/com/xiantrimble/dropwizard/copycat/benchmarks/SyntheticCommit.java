@@ -0,0 +1,85 @@
+/**
+ * Copyright (C) 2015 Christian Trimble (xiantrimble@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xiantrimble.dropwizard.copycat.benchmarks;
+
+import java.time.Instant;
+
+import io.atomix.copycat.Operation;
+import io.atomix.copycat.server.Commit;
+import io.atomix.copycat.server.session.ServerSession;
+
+/**
+ * A commit that is not backed by a log, so operations can be applied to a state machine without a
+ * server.  Releasing the commit does nothing, and it has no session.
+ *
+ * @author Christian Trimble
+ */
+public class SyntheticCommit<T extends Operation<?>> implements Commit<T> {
+  private final long index;
+  private final Instant time;
+  private final T operation;
+
+  public SyntheticCommit(long index, T operation) {
+    this.index = index;
+    this.time = Instant.now();
+    this.operation = operation;
+  }
+
+  @Override
+  public long index() {
+    return index;
+  }
+
+  @Override
+  public ServerSession session() {
+    return null;
+  }
+
+  @Override
+  public Instant time() {
+    return time;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public Class<T> type() {
+    return (Class<T>) operation.getClass();
+  }
+
+  @Override
+  public T operation() {
+    return operation;
+  }
+
+  @Override
+  public Commit<T> acquire() {
+    return this;
+  }
+
+  @Override
+  public boolean release() {
+    return true;
+  }
+
+  @Override
+  public int references() {
+    return 1;
+  }
+
+  @Override
+  public void close() {
+  }
+}
@@ -0,0 +1,173 @@
+/**
+ * Copyright (C) 2015 Christian Trimble (xiantrimble@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xiantrimble.dropwizard.copycat.benchmarks;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.atomix.catalyst.concurrent.Scheduled;
+import io.atomix.catalyst.serializer.Serializer;
+import io.atomix.copycat.Operation;
+import io.atomix.copycat.server.Commit;
+import io.atomix.copycat.server.StateMachine;
+import io.atomix.copycat.server.StateMachineContext;
+import io.atomix.copycat.server.StateMachineExecutor;
+import io.atomix.copycat.server.session.ServerSession;
+import io.atomix.copycat.server.session.SessionListener;
+import io.atomix.copycat.server.session.Sessions;
+
+/**
+ * An executor that applies commits to a state machine on the calling thread, the way the server's
+ * executor dispatches them by operation class.  There are no sessions, and scheduled callbacks
+ * never run.
+ *
+ * @author Christian Trimble
+ */
+public class SyntheticExecutor implements StateMachineExecutor {
+  private static final Logger LOGGER = LoggerFactory.getLogger(SyntheticExecutor.class);
+
+  private final Map<Class<?>, Function<Commit<?>, ?>> callbacks = new HashMap<>();
+  private final Serializer serializer = new Serializer();
+  private final Context context = new Context();
+
+  /**
+   * Returns an executor that the state machine has been initialized with.
+   */
+  public static SyntheticExecutor init(StateMachine stateMachine) {
+    SyntheticExecutor executor = new SyntheticExecutor();
+    stateMachine.init(executor);
+    return executor;
+  }
+
+  /**
+   * Applies the operation as the next commit, returning the output of the state machine.
+   */
+  @SuppressWarnings({ "rawtypes", "unchecked" })
+  public Object apply(Operation<?> operation) {
+    Function<Commit<?>, ?> callback = callbacks.get(operation.getClass());
+    if (callback == null) {
+      throw new IllegalStateException("no callback for " + operation.getClass().getName());
+    }
+    return callback.apply(new SyntheticCommit(++context.index, operation));
+  }
+
+  @Override
+  public StateMachineContext context() {
+    return context;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public <T extends Operation<Void>> StateMachineExecutor register(Class<T> type, Consumer<Commit<T>> callback) {
+    callbacks.put(type, commit -> {
+      callback.accept((Commit<T>) commit);
+      return null;
+    });
+    return this;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public <T extends Operation<U>, U> StateMachineExecutor register(Class<T> type, Function<Commit<T>, U> callback) {
+    callbacks.put(type, commit -> callback.apply((Commit<T>) commit));
+    return this;
+  }
+
+  @Override
+  public boolean isCurrentContext() {
+    return true;
+  }
+
+  @Override
+  public void checkThread() {
+  }
+
+  @Override
+  public Logger logger() {
+    return LOGGER;
+  }
+
+  @Override
+  public Serializer serializer() {
+    return serializer;
+  }
+
+  @Override
+  public Executor executor() {
+    return Runnable::run;
+  }
+
+  @Override
+  public Scheduled schedule(Duration delay, Runnable callback) {
+    return () -> {
+    };
+  }
+
+  @Override
+  public Scheduled schedule(Duration initialDelay, Duration interval, Runnable callback) {
+    return () -> {
+    };
+  }
+
+  static class Context implements StateMachineContext, Sessions {
+    long index;
+
+    @Override
+    public long index() {
+      return index;
+    }
+
+    @Override
+    public Clock clock() {
+      return Clock.systemUTC();
+    }
+
+    @Override
+    public Sessions sessions() {
+      return this;
+    }
+
+    @Override
+    public ServerSession session(long id) {
+      return null;
+    }
+
+    @Override
+    public Sessions addListener(SessionListener listener) {
+      return this;
+    }
+
+    @Override
+    public Sessions removeListener(SessionListener listener) {
+      return this;
+    }
+
+    @Override
+    public Iterator<ServerSession> iterator() {
+      return Collections.emptyIterator();
+    }
+  }
+}
@@ -0,0 +1,210 @@
+/**
+ * Copyright (C) 2015 Christian Trimble (xiantrimble@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xiantrimble.dropwizard.copycat;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+import io.atomix.copycat.Query;
+import io.atomix.copycat.client.ConnectionStrategies;
+import io.atomix.copycat.client.RecoveryStrategies;
+import io.dropwizard.util.Duration;
+import io.dropwizard.validation.MinDuration;
+
+/**
+ * Configuration for the Copycat client on a node.
+ *
+ * <pre>
+ * client:
+ *   requestTimeout: 5 seconds
+ *   consistency: SEQUENTIAL
+ *   batchWindow: 1ms
+ *   batchSize: 100
+ *   submitWindow: 16
+ *   sessions: 4
+ *   routing: KEY_AFFINITY
+ *   serverSelection: LEADER
+ *   querySelection: LEAST_LATENCY
+ *   connection: FIBONACCI_BACKOFF
+ *   recovery: RECOVER
+ *   hedging:
+ *     enabled: true
+ * </pre>
+ *
+ * @author Christian Trimble
+ */
+public class ClientConfiguration {
+  @NotNull
+  @MinDuration(value = 1, unit = TimeUnit.MILLISECONDS)
+  protected Duration requestTimeout = Duration.seconds(5);
+  @NotNull
+  protected Query.ConsistencyLevel consistency = Query.ConsistencyLevel.LINEARIZABLE;
+  @NotNull
+  @MinDuration(value = 0, unit = TimeUnit.MILLISECONDS)
+  protected Duration batchWindow = Duration.milliseconds(1);
+  @Min(1)
+  protected int batchSize = 100;
+  @Min(1)
+  protected int submitWindow = 16;
+  @Min(1)
+  protected int sessions = 1;
+  @NotNull
+  protected CopycatClientPool.Routing routing = CopycatClientPool.Routing.ROUND_ROBIN;
+  @NotNull
+  protected ServerSelection serverSelection = ServerSelection.LEADER;
+  protected ServerSelection querySelection;
+  @NotNull
+  protected ConnectionStrategies connection = ConnectionStrategies.FIBONACCI_BACKOFF;
+  @NotNull
+  protected RecoveryStrategies recovery = RecoveryStrategies.RECOVER;
+  @Valid
+  @NotNull
+  protected HedgingConfiguration hedging = new HedgingConfiguration();
+
+  /**
+   * How long resources wait for an operation to complete before giving up on it.
+   */
+  public Duration getRequestTimeout() {
+    return requestTimeout;
+  }
+
+  public void setRequestTimeout(Duration requestTimeout) {
+    this.requestTimeout = requestTimeout;
+  }
+
+  /**
+   * The consistency level used for queries that do not ask for one.
+   */
+  public Query.ConsistencyLevel getConsistency() {
+    return consistency;
+  }
+
+  public void setConsistency(Query.ConsistencyLevel consistency) {
+    this.consistency = consistency;
+  }
+
+  /**
+   * How long a command batcher waits for more commands after the first command of a batch.  Zero
+   * submits every command on its own.
+   */
+  public Duration getBatchWindow() {
+    return batchWindow;
+  }
+
+  public void setBatchWindow(Duration batchWindow) {
+    this.batchWindow = batchWindow;
+  }
+
+  /**
+   * The most commands a command batcher puts in one batch.
+   */
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  public void setBatchSize(int batchSize) {
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * The most commands a windowed submitter keeps in flight on a session.
+   */
+  public int getSubmitWindow() {
+    return submitWindow;
+  }
+
+  public void setSubmitWindow(int submitWindow) {
+    this.submitWindow = submitWindow;
+  }
+
+  /**
+   * The number of client sessions in the bundle's client pool.
+   */
+  public int getSessions() {
+    return sessions;
+  }
+
+  public void setSessions(int sessions) {
+    this.sessions = sessions;
+  }
+
+  public CopycatClientPool.Routing getRouting() {
+    return routing;
+  }
+
+  public void setRouting(CopycatClientPool.Routing routing) {
+    this.routing = routing;
+  }
+
+  /**
+   * The servers the sessions of the client pool connect to.
+   */
+  public ServerSelection getServerSelection() {
+    return serverSelection;
+  }
+
+  public void setServerSelection(ServerSelection serverSelection) {
+    this.serverSelection = serverSelection;
+  }
+
+  /**
+   * The servers a separate set of query sessions connect to.  When null, queries use the
+   * sessions of the client pool.
+   */
+  public ServerSelection getQuerySelection() {
+    return querySelection;
+  }
+
+  public void setQuerySelection(ServerSelection querySelection) {
+    this.querySelection = querySelection;
+  }
+
+  /**
+   * How sessions retry connecting to the cluster.
+   */
+  public ConnectionStrategies getConnection() {
+    return connection;
+  }
+
+  public void setConnection(ConnectionStrategies connection) {
+    this.connection = connection;
+  }
+
+  /**
+   * What sessions do when they expire.
+   */
+  public RecoveryStrategies getRecovery() {
+    return recovery;
+  }
+
+  public void setRecovery(RecoveryStrategies recovery) {
+    this.recovery = recovery;
+  }
+
+  /**
+   * How sequential queries are hedged.
+   */
+  public HedgingConfiguration getHedging() {
+    return hedging;
+  }
+
+  public void setHedging(HedgingConfiguration hedging) {
+    this.hedging = hedging;
+  }
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright (C) 2015 Christian Trimble (xiantrimble@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xiantrimble.dropwizard.copycat;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import io.atomix.copycat.Operation;
+import io.atomix.copycat.client.CopycatClient;
+
+/**
+ * Records the operations submitted through instrumented clients, and the state of their sessions.
+ * The following metrics are registered under copycat.client:
+ *
+ * <ul>
+ * <li>&lt;operation class&gt;.latency - a timer of the round trips of each operation class, whose
+ * rates are the throughput of the class.</li>
+ * <li>&lt;operation class&gt;.failures - a meter of the operations of the class that failed.</li>
+ * <li>in-flight - a counter of the operations waiting for a response.</li>
+ * <li>sessions.connected, sessions.suspended - gauges of the number of sessions in each state.</li>
+ * <li>reconnects - a meter of sessions connecting again after being suspended.</li>
+ * <li>suspensions - a meter of sessions losing their connection to the cluster.</li>
+ * </ul>
+ *
+ * @author Christian Trimble
+ */
+public class ClientMetrics {
+  public static final String PREFIX = "copycat.client";
+
+  private final MetricRegistry metrics;
+  private final Counter inFlight;
+  private final Meter reconnects;
+  private final Meter suspensions;
+  private final List<CopycatClient> clients = new CopyOnWriteArrayList<>();
+  private final Map<Class<?>, Timer> latencies = new ConcurrentHashMap<>();
+  private final Map<Class<?>, Meter> failures = new ConcurrentHashMap<>();
+
+  public ClientMetrics(MetricRegistry metrics) {
+    this.metrics = metrics;
+    this.inFlight = metrics.counter(MetricRegistry.name(PREFIX, "in-flight"));
+    this.reconnects = metrics.meter(MetricRegistry.name(PREFIX, "reconnects"));
+    this.suspensions = metrics.meter(MetricRegistry.name(PREFIX, "suspensions"));
+    metrics.register(MetricRegistry.name(PREFIX, "sessions", "connected"), (Gauge<Long>) () -> sessions(CopycatClient.State.CONNECTED));
+    metrics.register(MetricRegistry.name(PREFIX, "sessions", "suspended"), (Gauge<Long>) () -> sessions(CopycatClient.State.SUSPENDED));
+  }
+
+  /**
+   * Returns a client that records its operations, and starts following the state of its session.
+   */
+  public CopycatClient instrument(CopycatClient client) {
+    clients.add(client);
+    AtomicReference<CopycatClient.State> last = new AtomicReference<>(client.state());
+    client.onStateChange(state -> {
+      CopycatClient.State previous = last.getAndSet(state);
+      if( state == CopycatClient.State.SUSPENDED ) {
+        suspensions.mark();
+      } else if( state == CopycatClient.State.CONNECTED && previous == CopycatClient.State.SUSPENDED ) {
+        reconnects.mark();
+      }
+    });
+    return new InstrumentedCopycatClient(client, this);
+  }
+
+  /**
+   * Times the submission of the operation, until its future completes.
+   */
+  <T> CompletableFuture<T> submit(Operation<?> operation, Supplier<CompletableFuture<T>> submit) {
+    Class<?> type = operation.getClass();
+    Timer.Context time = latencies.computeIfAbsent(type, t -> metrics.timer(MetricRegistry.name(PREFIX, t.getName(), "latency"))).time();
+    inFlight.inc();
+    return submit.get().whenComplete((result, error) -> {
+      time.stop();
+      inFlight.dec();
+      if( error != null ) {
+        failures.computeIfAbsent(type, t -> metrics.meter(MetricRegistry.name(PREFIX, t.getName(), "failures"))).mark();
+      }
+    });
+  }
+
+  long sessions(CopycatClient.State state) {
+    return clients.stream().filter(client -> client.state() == state).count();
+  }
+}
@@ -0,0 +1,193 @@
+/**
+ * Copyright (C) 2015 Christian Trimble (xiantrimble@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xiantrimble.dropwizard.copycat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import io.atomix.copycat.Command;
+import io.atomix.copycat.client.CopycatClient;
+
+/**
+ * Gathers commands submitted within a short window into a single batch command, so a burst of
+ * writes costs one log entry and one replication round trip.  Each caller's future completes with
+ * its own result from the batch.
+ *
+ * A batch is submitted when it reaches the max size or when the window since its first command
+ * passes.  A batch of one is submitted as the original command.  Batches are submitted in order,
+ * so commands keep the order of the client session.
+ *
+ * The batch command must return one result per command, in order, or null when the commands have no
+ * results.  When it returns another number of results, every command of the batch fails.
+ *
+ * @author Christian Trimble
+ */
+public class CommandBatcher<C extends Command<R>, R> implements AutoCloseable {
+
+  public static class Builder<C extends Command<R>, R> {
+    private CopycatClient client;
+    private Function<List<C>, ? extends Command<List<R>>> batch;
+    private int maxSize = 100;
+    private Duration window = Duration.ofMillis(1);
+
+    public CommandBatcher<C, R> build() {
+      if( client == null ) {
+        throw new IllegalArgumentException("client is required.");
+      }
+      if( batch == null ) {
+        throw new IllegalArgumentException("batch function is required.");
+      }
+      return new CommandBatcher<C, R>(client, batch, maxSize, window);
+    }
+
+    public Builder<C, R> withClient(CopycatClient client) {
+      this.client = client;
+      return this;
+    }
+
+    /**
+     * Sets the function that combines commands into one batch command.
+     */
+    public Builder<C, R> withBatch(Function<List<C>, ? extends Command<List<R>>> batch) {
+      this.batch = batch;
+      return this;
+    }
+
+    public Builder<C, R> withMaxSize(int maxSize) {
+      if( maxSize < 1 ) {
+        throw new IllegalArgumentException("maxSize must be positive.");
+      }
+      this.maxSize = maxSize;
+      return this;
+    }
+
+    public Builder<C, R> withWindow(Duration window) {
+      this.window = window;
+      return this;
+    }
+  }
+
+  public static <C extends Command<R>, R> Builder<C, R> builder() {
+    return new Builder<C, R>();
+  }
+
+  private final CopycatClient client;
+  private final Function<List<C>, ? extends Command<List<R>>> batch;
+  private final int maxSize;
+  private final long windowNanos;
+  private final ScheduledExecutorService scheduler;
+  private List<Pending<C, R>> pending = new ArrayList<>();
+  private ScheduledFuture<?> scheduledFlush;
+  private CompletableFuture<?> submitted = CompletableFuture.completedFuture(null);
+
+  CommandBatcher(CopycatClient client, Function<List<C>, ? extends Command<List<R>>> batch, int maxSize, Duration window) {
+    this.client = client;
+    this.batch = batch;
+    this.maxSize = maxSize;
+    this.windowNanos = window.toNanos();
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "copycat-command-batcher");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  public synchronized CompletableFuture<R> submit(C command) {
+    Pending<C, R> next = new Pending<>(command);
+    pending.add(next);
+    if( pending.size() >= maxSize || windowNanos <= 0 ) {
+      flush();
+    } else if( pending.size() == 1 ) {
+      scheduledFlush = scheduler.schedule(this::flush, windowNanos, TimeUnit.NANOSECONDS);
+    }
+    return next.future;
+  }
+
+  /**
+   * Submits the pending commands now.
+   */
+  public synchronized void flush() {
+    if( scheduledFlush != null ) {
+      scheduledFlush.cancel(false);
+      scheduledFlush = null;
+    }
+    if( pending.isEmpty() ) {
+      return;
+    }
+    List<Pending<C, R>> flushed = pending;
+    pending = new ArrayList<>();
+
+    if( flushed.size() == 1 ) {
+      Pending<C, R> single = flushed.get(0);
+      submitted = client.submit(single.command).whenComplete((result, error) -> single.complete(result, error));
+      return;
+    }
+
+    List<C> commands = flushed.stream().map(p -> p.command).collect(Collectors.toList());
+    submitted = client.submit(batch.apply(commands)).whenComplete((results, error) -> {
+      Throwable failure = error == null && results != null && results.size() != flushed.size()
+          ? new IllegalStateException("batch of " + flushed.size() + " commands returned " + results.size() + " results.")
+          : error;
+      for( int i = 0; i < flushed.size(); i++ ) {
+        flushed.get(i).complete(failure == null && results != null ? results.get(i) : null, failure);
+      }
+    });
+  }
+
+  /**
+   * Submits the pending commands now, returning a future that completes when every batch
+   * submitted so far has been answered, successfully or not.  Batches are answered in the order
+   * of the session, so this waits on the last one.
+   */
+  public synchronized CompletableFuture<Void> drain() {
+    flush();
+    return submitted.handle((result, error) -> null);
+  }
+
+  /**
+   * Submits any pending commands and stops the batcher.
+   */
+  @Override
+  public void close() {
+    flush();
+    scheduler.shutdown();
+  }
+
+  static class Pending<C, R> {
+    final C command;
+    final CompletableFuture<R> future = new CompletableFuture<>();
+
+    Pending(C command) {
+      this.command = command;
+    }
+
+    void complete(R result, Throwable error) {
+      if( error != null ) {
+        future.completeExceptionally(error);
+      } else {
+        future.complete(result);
+      }
+    }
+  }
+}
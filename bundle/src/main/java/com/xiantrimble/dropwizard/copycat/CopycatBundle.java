@@ -18,12 +18,18 @@ package com.xiantrimble.dropwizard.copycat;
 import java.io.File;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
+import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.databind.ObjectMapper;
-//import com.xiantrimble.jackson.catalyst.CatalystInputStream;
-//import com.xiantrimble.jackson.catalyst.CatalystOutputStream;
+import com.xiantrimble.jackson.catalyst.ObjectMapperTypeSerializer;
 
 import io.dropwizard.Configuration;
 import io.dropwizard.ConfiguredBundle;
@@ -31,7 +37,6 @@ import io.dropwizard.lifecycle.Managed;
 import io.dropwizard.setup.Bootstrap;
 import io.dropwizard.setup.Environment;
 import io.atomix.catalyst.transport.Address;
-import io.atomix.catalyst.transport.netty.NettyTransport;
 import io.atomix.catalyst.transport.Transport;
 import io.atomix.copycat.client.CopycatClient;
 import io.atomix.copycat.server.CopycatServer;
@@ -52,13 +57,27 @@ public class CopycatBundle<C extends Configuration> implements ConfiguredBundle<
 
     private Function<C, CopycatConfiguration> configuration;
 	private Supplier<StateMachine> stateMachineSupplier;
+	private Map<String, Supplier<StateMachine>> namespaces = new TreeMap<>();
+	private boolean injectedStateMachine;
 	private Serializer serializer;
+	private SerializedSizes sizes = new SerializedSizes();
 
     public CopycatBundle<C> build() {
     	if( configuration == null ) {
     		throw new IllegalArgumentException("configuraiton accessor is required.");
     	}
-      return new CopycatBundle<C>(configuration, stateMachineSupplier, serializer);
+    	if( !namespaces.isEmpty() ) {
+    	  if( stateMachineSupplier != null ) {
+    	    throw new IllegalArgumentException("a state machine supplier cannot be combined with namespaces.");
+    	  }
+    	  stateMachineSupplier = MultiplexedStateMachine.supplier(namespaces);
+    	}
+    	if( injectedStateMachine && stateMachineSupplier != null ) {
+    	  throw new IllegalArgumentException("an injected state machine cannot be combined with a state machine supplier.");
+    	}
+      CopycatBundle<C> bundle = new CopycatBundle<C>(configuration, stateMachineSupplier, serializer, sizes);
+      bundle.injectedStateMachine = injectedStateMachine;
+      return bundle;
     }
 
     public Builder<C> withConfiguration(Function<C, CopycatConfiguration> configuration) {
@@ -71,50 +90,89 @@ public class CopycatBundle<C extends Configuration> implements ConfiguredBundle<
     	return this;
     }
     
+    /**
+     * Hosts a state machine from the supplier under a namespace.  When namespaces are added, the
+     * server's state machine is a multiplexed state machine that hosts them.
+     */
+    public Builder<C> withNamespace( String namespace, Supplier<StateMachine> stateMachineSupplier ) {
+      namespaces.put(namespace, stateMachineSupplier);
+      return this;
+    }
+    
+    /**
+     * Hosts the state machine supplier bound in the injector, which a CopycatModule hands to the
+     * bundle.  The servers are built when they start, after the injector is created.
+     */
+    public Builder<C> withInjectedStateMachine() {
+      this.injectedStateMachine = true;
+      return this;
+    }
+    
     public Builder<C> withSerializer( Serializer serializer ) {
     	this.serializer = serializer;
     	return this;
     }
+
+    /**
+     * Registers the types, and their subtypes, to be written as Smile.  A serializer is created if
+     * one has not been provided.
+     */
+    public Builder<C> withSmileTypes( Class<?>... types ) {
+      if( serializer == null ) {
+        serializer = new Serializer();
+      }
+      TypeSerializerFactory factory = sizes.measure(new SmileTypeSerializerFactory());
+      for( Class<?> type : types ) {
+        serializer.registerAbstract(type, factory);
+      }
+      return this;
+    }
   }
   
-  /*
+  /**
+   * Returns a type serializer that reads and writes values with the mapper, directly against the
+   * Catalyst buffers.
+   */
   public static <T> TypeSerializer<T> objectMapperSerializer(ObjectMapper mapper) {
-	  return new TypeSerializer<T>() {
-
-		@Override
-		public void write(T object, BufferOutput buffer, Serializer serializer) {
-			try (CatalystOutputStream out = new CatalystOutputStream(buffer)) {
-				mapper.writeValue(out, object);
-			} catch (IOException e) {
-				throw new UncheckedIOException(e);
-			}
-		}
-
-		@Override
-		public T read(Class<T> type, BufferInput buffer, Serializer serializer) {
-			try (CatalystInputStream in = new CatalystInputStream(buffer)){
-				return mapper.readValue(in, type);
-			} catch (IOException e) {
-				throw new UncheckedIOException(e);
-			}
-		}
-
-	};
+    return new ObjectMapperTypeSerializer<T>(mapper);
   }
-  */
+
+  /**
+   * The election timeout of the member each partition prefers as its leader, which is Copycat's
+   * default.
+   */
+  static final java.time.Duration ELECTION_TIMEOUT = java.time.Duration.ofMillis(750);
 
   private Function<C, CopycatConfiguration> configurationAccessor;
   private CopycatConfiguration configuration;
   CopycatServer server;
+  List<CopycatServer> partitionServers = new ArrayList<>();
   CopycatClient client;
+  CopycatClientPool clientPool;
+  CopycatPartitions partitions;
+  HedgedQueries hedgedQueries;
+  SharedTransport transport;
+  LeastLatencyStrategy leastLatency;
   private Supplier<StateMachine> stateMachineSupplier;
+  private boolean injectedStateMachine;
+  private Supplier<? extends Supplier<StateMachine>> stateMachineProvider;
   private ObjectMapper mapper;
   private Serializer serializer;
+  private SerializedSizes sizes;
+  ClientMetrics clientMetrics;
+  StateMachineMetrics stateMachineMetrics;
+  ServerMetrics serverMetrics;
+  StorageMetrics storageMetrics;
 
   public CopycatBundle(Function<C, CopycatConfiguration> configurationAccessor, Supplier<StateMachine> stateMachineSupplier, Serializer serializer) {
+	this(configurationAccessor, stateMachineSupplier, serializer, new SerializedSizes());
+  }
+
+  public CopycatBundle(Function<C, CopycatConfiguration> configurationAccessor, Supplier<StateMachine> stateMachineSupplier, Serializer serializer, SerializedSizes sizes) {
 	this.configurationAccessor = configurationAccessor;
 	this.stateMachineSupplier = stateMachineSupplier;
 	this.serializer = serializer;
+	this.sizes = sizes;
   }
 
   @Override
@@ -129,22 +187,123 @@ public class CopycatBundle<C extends Configuration> implements ConfiguredBundle<
     if( configuration == null ) {
     	throw new NullPointerException("configuration cannot be null.");
     }
+    instrument(environment.metrics());
+    environment.lifecycle().manage(new TransportManager());
     if( stateMachineSupplier != null ) {
-      server = createServer(stateMachineSupplier);
+      createServers(stateMachineSupplier);
+    }
+    if( stateMachineSupplier != null || injectedStateMachine ) {
       environment.lifecycle().manage(new CopycatServerManager());
     }
-    client = createClient();
+    partitions = createPartitions();
+    clientPool = partitions.getPools().get(0);
+    client = clientPool.getClients().get(0);
+    hedgedQueries = createHedgedQueries(environment.metrics());
     environment.lifecycle().manage(new CopycatClientManager());
   }
 
+  /**
+   * Registers the client, server, state machine and storage metrics.  Clients built after this
+   * record their operations, and servers report their Raft state and log usage and time the
+   * operations of their state machines.  When the configuration asks for serialized sizes, the
+   * serializer also records the sizes of the values it writes, and a serializer is created if one
+   * was not provided.
+   */
+  void instrument(MetricRegistry metrics) {
+    clientMetrics = new ClientMetrics(metrics);
+    stateMachineMetrics = new StateMachineMetrics(metrics);
+    serverMetrics = new ServerMetrics(metrics);
+    storageMetrics = new StorageMetrics(metrics);
+    if( configuration.isSerializedSizes() ) {
+      sizes.setMetrics(metrics);
+      if( serializer == null ) {
+        serializer = new Serializer();
+      }
+      sizes.instrument(serializer);
+    }
+  }
+
+  /**
+   * Builds the server of every partition.
+   */
+  void createServers(Supplier<StateMachine> stateMachineSupplier) {
+    for( int partition = 0; partition < configuration.getPartitions(); partition++ ) {
+      partitionServers.add(createServer(stateMachineSupplier, partition));
+    }
+    server = partitionServers.get(0);
+  }
+
+  public CopycatConfiguration getConfiguration() {
+    return configuration;
+  }
+
+  /**
+   * True when the bundle hosts the state machine supplier bound in the injector.
+   */
+  public boolean isInjectedStateMachine() {
+    return injectedStateMachine;
+  }
+
+  /**
+   * Sets the provider of the injected state machine supplier, which is resolved when the servers
+   * start.
+   */
+  public void setStateMachineProvider(Supplier<? extends Supplier<StateMachine>> stateMachineProvider) {
+    this.stateMachineProvider = stateMachineProvider;
+  }
+
+  /**
+   * Returns the server of the first partition.  With an injected state machine, this is null until
+   * the servers start.
+   */
   public CopycatServer getServer() {
     return server;
   }
+
+  /**
+   * Returns the servers of every partition, in partition order.
+   */
+  public List<CopycatServer> getServers() {
+    return partitionServers;
+  }
   
   public CopycatClient getClient() {
 	  return client;
   }
 
+  /**
+   * Returns the pool of client sessions of the first partition.  The client returned by getClient
+   * is the first client in the pool.
+   */
+  public CopycatClientPool getClientPool() {
+    return clientPool;
+  }
+
+  /**
+   * Returns the router over the client pools of every partition.
+   */
+  public CopycatPartitions getPartitions() {
+    return partitions;
+  }
+
+  /**
+   * Returns the query submitter that hedges slow sequential queries, when hedging is enabled.
+   */
+  public HedgedQueries getHedgedQueries() {
+    return hedgedQueries;
+  }
+
+  /**
+   * Returns the transport shared by the client and server on this node, so they run on one event
+   * loop group.  The bundle closes the transport after the client and server have stopped.
+   */
+  public synchronized Transport getTransport() {
+    if( transport == null ) {
+      transport = new SharedTransport(configuration.getTransport().build());
+    }
+    return transport;
+  }
+
   public static <C extends Configuration> Builder<C> builder() {
     return new Builder<C>();
   }
@@ -154,15 +313,28 @@ public class CopycatBundle<C extends Configuration> implements ConfiguredBundle<
 	@Override
 	public void start() throws Exception {
 		System.out.println("starting copycat");
-		server.bootstrap(configuration.members()).get();
+		if( partitionServers.isEmpty() ) {
+			if( stateMachineProvider == null ) {
+				throw new IllegalStateException("no state machine was injected, install a CopycatModule for this bundle.");
+			}
+			createServers(stateMachineProvider.get());
+		}
+		List<CompletableFuture<CopycatServer>> bootstraps = new ArrayList<>();
+		for( int partition = 0; partition < partitionServers.size(); partition++ ) {
+			bootstraps.add(partitionServers.get(partition).bootstrap(configuration.members(partition)));
+		}
+		CompletableFuture.allOf(bootstraps.toArray(new CompletableFuture<?>[bootstraps.size()])).get();
 	}
 
 	@Override
 	public void stop() throws Exception {
 		System.out.println("stopping copycat");
-		if( server != null ) {
-			server.leave().get();
+		if( storageMetrics != null ) {
+			storageMetrics.close();
 		}
+		CompletableFuture.allOf(partitionServers.stream()
+				.map(CopycatServer::leave)
+				.toArray(CompletableFuture<?>[]::new)).get();
 	} 
   }
   
@@ -170,52 +342,240 @@ public class CopycatBundle<C extends Configuration> implements ConfiguredBundle<
 	  
   }
   
+  public class TransportManager implements Managed {
+
+    @Override
+    public void start() throws Exception {
+    }
+
+    @Override
+    public void stop() throws Exception {
+      if( transport != null ) {
+        transport.getTransport().close();
+      }
+    }
+  }
+
   public class CopycatClientManager implements Managed {
 
 		@Override
 		public void start() throws Exception {
 			System.out.println("starting copycat client");
-			client.connect().join();
+			partitions.connect().join();
 		}
 
 		@Override
 		public void stop() throws Exception {
 			System.out.println("stopping copycat client");
-			if( client != null ) {
-				client.close().join();
+			if( hedgedQueries != null ) {
+				hedgedQueries.close();
+			}
+			if( partitions != null ) {
+				partitions.close().join();
 			}
 		} 	  
   }
 
   public CopycatServer createServer(Supplier<StateMachine> stateMachineSupplier) {
-	Transport transport = new NettyTransport();
-	File logs = new File(configuration.getLog());
-	logs.mkdirs();
-	Storage storage = Storage.builder().withDirectory(logs).build();
+    return createServer(stateMachineSupplier, 0);
+  }
+
+  /**
+   * Builds the server of a partition, which listens on the partition's port and keeps its log in
+   * the partition's directory.  When there are several partitions, their metrics are registered
+   * under partition-&lt;p&gt;, and their election timeouts are staggered to spread their leaders
+   * over the members.
+   */
+  public CopycatServer createServer(Supplier<StateMachine> stateMachineSupplier, int partition) {
+	Storage storage = createStorage(partition);
+	String scope = configuration.getPartitions() > 1 ? "partition-" + partition : null;
 	  
-    CopycatServer.Builder builder = CopycatServer.builder(new Address(configuration.getAddress().getHost(), configuration.getAddress().getPort()))
-            .withTransport(transport)
+    if( stateMachineMetrics != null ) {
+      stateMachineSupplier = stateMachineMetrics.instrument(stateMachineSupplier);
+    }
+    CopycatServer.Builder builder = CopycatServer.builder(configuration.address(partition))
+            .withTransport(getTransport())
             .withStorage(storage)
             .withStateMachine(stateMachineSupplier);
     
     if( serializer != null ) {
             builder.withSerializer(serializer);
     }
+    if( configuration.getPartitions() > 1 ) {
+      builder.withElectionTimeout(electionTimeout(partition));
+    }
+
+    CopycatServer server = builder.build();
+    if( stateMachineMetrics != null ) {
+      stateMachineMetrics.register(server, scope);
+    }
+    if( serverMetrics != null ) {
+      serverMetrics.register(server, configuration.address(partition), servers(partition), scope);
+    }
+    if( storageMetrics != null ) {
+      storageMetrics.register(server, configuration.log(partition), configuration.getStorage(), scope);
+    }
+    return server;
+  }
+
+  /**
+   * Returns the election timeout of this node's server for a partition.  Each partition prefers
+   * the member at its index, modulo the number of members, which times out after the usual
+   * election timeout.  The other members wait twice as long, so the preferred member usually
+   * becomes the partition's first leader, and the leaders of the partitions are spread over the
+   * members.  Later elections still go to whichever member times out first.
+   */
+  java.time.Duration electionTimeout(int partition) {
+    List<Address> members = servers(partition);
+    Address preferred = members.get(partition % members.size());
+    return preferred.equals(configuration.address(partition)) ? ELECTION_TIMEOUT : ELECTION_TIMEOUT.multipliedBy(2);
+  }
+
+  /**
+   * Builds the storage of the server.  When storage metrics are registered and timed compaction
+   * is configured, the metrics run the compactions, so the storage's own compaction schedule is
+   * switched off.
+   */
+  public Storage createStorage() {
+    return createStorage(0);
+  }
+
+  /**
+   * Builds the storage of a partition's server, in the partition's log directory.
+   */
+  public Storage createStorage(int partition) {
+    File logs = configuration.log(partition);
+    logs.mkdirs();
+    StorageConfiguration storage = configuration.getStorage();
+    boolean timedCompaction = storageMetrics != null && storage.isTimedCompaction();
+
+    Storage.Builder builder = Storage.builder()
+        .withDirectory(logs)
+        .withStorageLevel(storage.getLevel())
+        .withMaxSegmentSize((int) storage.getMaxSegmentSize().toBytes())
+        .withMaxEntriesPerSegment(storage.getMaxEntriesPerSegment())
+        .withEntryBufferSize(storage.getEntryBufferSize())
+        .withFlushOnCommit(storage.isFlushOnCommit())
+        .withRetainStaleSnapshots(storage.isRetainStaleSnapshots())
+        .withMinorCompactionInterval(timedCompaction ? StorageMetrics.UNSCHEDULED : java.time.Duration.ofMillis(storage.getMinorCompactionInterval().toMilliseconds()))
+        .withMajorCompactionInterval(timedCompaction ? StorageMetrics.UNSCHEDULED : java.time.Duration.ofMillis(storage.getMajorCompactionInterval().toMilliseconds()))
+        .withCompactionThreshold(storage.getCompactionThreshold());
+
+    if( storage.getCompactionThreads() != null ) {
+      builder.withCompactionThreads(storage.getCompactionThreads());
+    }
 
     return builder.build();
   }
 
   public CopycatClient createClient() {
-	CopycatClient.Builder builder = CopycatClient.builder(configuration.address())
-			.withTransport(new NettyTransport());
+	client = buildClient();
+	
+	return client;
+  }
+
+  public CopycatClientPool createClientPool() {
+    return createClientPool(0);
+  }
+
+  /**
+   * Builds the pool of client sessions connected to a partition's group.
+   */
+  public CopycatClientPool createClientPool(int partition) {
+    ClientConfiguration clientConfiguration = configuration.getClient();
+    List<CopycatClient> clients = new ArrayList<>();
+    List<CopycatClient> queryClients = new ArrayList<>();
+    for( int i = 0; i < clientConfiguration.getSessions(); i++ ) {
+      clients.add(buildClient(clientConfiguration.getServerSelection(), partition));
+      if( clientConfiguration.getQuerySelection() != null ) {
+        queryClients.add(buildClient(clientConfiguration.getQuerySelection(), partition, i));
+      }
+    }
+    return new CopycatClientPool(clients, queryClients, clientConfiguration.getRouting());
+  }
+
+  /**
+   * Builds a client pool for every partition.
+   */
+  public CopycatPartitions createPartitions() {
+    List<CopycatClientPool> pools = new ArrayList<>();
+    for( int partition = 0; partition < configuration.getPartitions(); partition++ ) {
+      pools.add(createClientPool(partition));
+    }
+    return new CopycatPartitions(pools);
+  }
+
+  public HedgedQueries createHedgedQueries(MetricRegistry metrics) {
+    HedgingConfiguration hedging = configuration.getClient().getHedging();
+    return HedgedQueries.builder()
+        .withPartitions(partitions)
+        .withMetrics(metrics)
+        .withEnabled(hedging.isEnabled())
+        .withPercentile(hedging.getPercentile())
+        .withMinDelay(java.time.Duration.ofNanos(hedging.getMinDelay().toNanoseconds()))
+        .build();
+  }
+
+  /**
+   * Returns the strategy shared by the sessions selecting servers by latency, so every session
+   * learns from the round trips of the others.
+   */
+  public synchronized LeastLatencyStrategy getLeastLatencyStrategy() {
+    if( leastLatency == null ) {
+      leastLatency = new LeastLatencyStrategy();
+    }
+    return leastLatency;
+  }
+
+  CopycatClient buildClient() {
+    return buildClient(configuration.getClient().getServerSelection());
+  }
+
+  CopycatClient buildClient(ServerSelection selection) {
+	return buildClient(selection, 0);
+  }
+
+  CopycatClient buildClient(ServerSelection selection, int partition) {
+	return buildClient(selection, partition, 0);
+  }
+
+  /**
+   * Builds a session of a partition's group, at the index of its pool.
+   */
+  CopycatClient buildClient(ServerSelection selection, int partition, int session) {
+	ClientConfiguration clientConfiguration = configuration.getClient();
+	Transport clientTransport = getTransport();
+	if( selection == ServerSelection.LEAST_LATENCY ) {
+		clientTransport = getLeastLatencyStrategy().recording(clientTransport);
+	}
+
+	CopycatClient.Builder builder = CopycatClient.builder(servers(partition))
+			.withTransport(clientTransport)
+			.withServerSelectionStrategy(selection.strategy(getLeastLatencyStrategy(), session))
+			.withConnectionStrategy(clientConfiguration.getConnection())
+			.withRecoveryStrategy(clientConfiguration.getRecovery());
 	
 	if( serializer != null ) {
 		builder.withSerializer(serializer);
 	}
 	
-	client = builder.build();
-	
-	return client;
+	CopycatClient client = builder.build();
+	return clientMetrics != null ? clientMetrics.instrument(client) : client;
+  }
+
+  /**
+   * The servers of a partition a client first connects to.  Clients learn the rest of the cluster
+   * from the server they connect to.
+   */
+  List<Address> servers(int partition) {
+    List<Address> servers = new ArrayList<>();
+    if( configuration.getMembers() != null ) {
+      servers.addAll(Arrays.asList(configuration.members(partition)));
+    }
+    if( servers.isEmpty() ) {
+      servers.add(configuration.address(partition));
+    }
+    return servers;
   }
 
 }
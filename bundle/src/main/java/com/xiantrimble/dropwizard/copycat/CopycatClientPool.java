@@ -0,0 +1,158 @@
+/**
+ * Copyright (C) 2015 Christian Trimble (xiantrimble@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xiantrimble.dropwizard.copycat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.atomix.copycat.Command;
+import io.atomix.copycat.Query;
+import io.atomix.copycat.client.CopycatClient;
+
+/**
+ * A pool of Copycat clients, each with its own session.  Copycat orders the operations of a
+ * session, so spreading operations over several sessions lets them proceed concurrently.
+ *
+ * Operations on different sessions are not ordered with respect to each other.  Callers that need
+ * the operations on a key to stay in order should use {@link #client(Object)} with key affinity
+ * routing.
+ *
+ * A pool can also hold a separate set of sessions for queries, connected to different servers than
+ * the sessions used for commands.  Without them, queries use the command sessions.
+ *
+ * @author Christian Trimble
+ */
+public class CopycatClientPool {
+
+  /**
+   * How operations with a key are routed to sessions.
+   */
+  public static enum Routing {
+    /**
+     * Operations take turns over the sessions, ignoring their keys.
+     */
+    ROUND_ROBIN,
+    /**
+     * Operations on the same key always use the same session.
+     */
+    KEY_AFFINITY
+  }
+
+  private final List<CopycatClient> clients;
+  private final List<CopycatClient> queryClients;
+  private final Routing routing;
+  private final AtomicInteger next = new AtomicInteger();
+  private final AtomicInteger nextQuery = new AtomicInteger();
+
+  public CopycatClientPool(List<CopycatClient> clients, Routing routing) {
+    this(clients, Collections.emptyList(), routing);
+  }
+
+  public CopycatClientPool(List<CopycatClient> clients, List<CopycatClient> queryClients, Routing routing) {
+    if( clients.isEmpty() ) {
+      throw new IllegalArgumentException("a pool requires at least one client.");
+    }
+    this.clients = Collections.unmodifiableList(new ArrayList<>(clients));
+    this.queryClients = queryClients.isEmpty() ? this.clients : Collections.unmodifiableList(new ArrayList<>(queryClients));
+    this.routing = routing;
+  }
+
+  public List<CopycatClient> getClients() {
+    return clients;
+  }
+
+  /**
+   * Returns the sessions used for queries, which are the command sessions when the pool has no
+   * query sessions.
+   */
+  public List<CopycatClient> getQueryClients() {
+    return queryClients;
+  }
+
+  public Routing getRouting() {
+    return routing;
+  }
+
+  public int size() {
+    return clients.size();
+  }
+
+  /**
+   * Returns the next client in turn.
+   */
+  public CopycatClient client() {
+    return clients.get(Math.floorMod(next.getAndIncrement(), clients.size()));
+  }
+
+  /**
+   * Returns the client for an operation on the key.
+   */
+  public CopycatClient client(Object key) {
+    if( routing == Routing.KEY_AFFINITY && key != null ) {
+      return clients.get(Math.floorMod(key.hashCode(), clients.size()));
+    }
+    return client();
+  }
+
+  /**
+   * Returns the next query client in turn.
+   */
+  public CopycatClient queryClient() {
+    return queryClients.get(Math.floorMod(nextQuery.getAndIncrement(), queryClients.size()));
+  }
+
+  /**
+   * Returns the query client for a query on the key.
+   */
+  public CopycatClient queryClient(Object key) {
+    if( routing == Routing.KEY_AFFINITY && key != null ) {
+      return queryClients.get(Math.floorMod(key.hashCode(), queryClients.size()));
+    }
+    return queryClient();
+  }
+
+  public <T> CompletableFuture<T> submit(Command<T> command) {
+    return client().submit(command);
+  }
+
+  public <T> CompletableFuture<T> submit(Query<T> query) {
+    return queryClient().submit(query);
+  }
+
+  public CompletableFuture<Void> connect() {
+    return CompletableFuture.allOf(sessions().stream()
+        .map(client -> client.connect())
+        .toArray(CompletableFuture<?>[]::new));
+  }
+
+  public CompletableFuture<Void> close() {
+    return CompletableFuture.allOf(sessions().stream()
+        .map(CopycatClient::close)
+        .toArray(CompletableFuture<?>[]::new));
+  }
+
+  private List<CopycatClient> sessions() {
+    if( queryClients == clients ) {
+      return clients;
+    }
+    List<CopycatClient> sessions = new ArrayList<>(clients);
+    sessions.addAll(queryClients);
+    return sessions;
+  }
+}
@@ -15,14 +15,31 @@
  */
 package com.xiantrimble.dropwizard.copycat;
 
+import java.io.File;
 import java.util.List;
 
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
 import io.atomix.catalyst.transport.Address;
 
 public class CopycatConfiguration {
 protected HostAndPort address;
   protected List<HostAndPort> members;
   protected String log;
+  @Min(1)
+  protected int partitions = 1;
+  @Valid
+  @NotNull
+  protected StorageConfiguration storage = new StorageConfiguration();
+  @Valid
+  @NotNull
+  protected TransportConfiguration transport = new TransportConfiguration();
+  @Valid
+  @NotNull
+  protected ClientConfiguration client = new ClientConfiguration();
+  protected boolean serializedSizes = false;
   
   public void setAddress( HostAndPort address ) {
 	  this.address = address;
@@ -47,6 +64,54 @@ protected HostAndPort address;
 	public void setLog(String log) {
 		this.log = log;
 	}
+
+  /**
+   * The number of independent Copycat groups each node serves.  Partition p of a member listens on
+   * the member's port plus p, so the ports of members must be at least this far apart.
+   */
+  public int getPartitions() {
+    return partitions;
+  }
+
+  public void setPartitions(int partitions) {
+    this.partitions = partitions;
+  }
+
+  public StorageConfiguration getStorage() {
+    return storage;
+  }
+
+  public void setStorage(StorageConfiguration storage) {
+    this.storage = storage;
+  }
+
+  public TransportConfiguration getTransport() {
+    return transport;
+  }
+
+  public void setTransport(TransportConfiguration transport) {
+    this.transport = transport;
+  }
+
+  public ClientConfiguration getClient() {
+    return client;
+  }
+
+  public void setClient(ClientConfiguration client) {
+    this.client = client;
+  }
+
+  /**
+   * When true, the serializer records the bytes each type is written to, at some cost to every
+   * message and log entry.
+   */
+  public boolean isSerializedSizes() {
+    return serializedSizes;
+  }
+
+  public void setSerializedSizes(boolean serializedSizes) {
+    this.serializedSizes = serializedSizes;
+  }
 	
 	public static class HostAndPort {
 		private String host;
@@ -77,4 +142,28 @@ protected HostAndPort address;
   public Address address() {
 	return new Address(address.getHost(), address.getPort());
   }
+
+  /**
+   * Returns the members of a partition's group.
+   */
+  public Address[] members(int partition) {
+    return members.stream()
+        .map(address->new Address(address.getHost(), address.getPort() + partition))
+        .toArray(size->new Address[size]);
+  }
+
+  /**
+   * Returns the address this node serves a partition on.
+   */
+  public Address address(int partition) {
+    return new Address(address.getHost(), address.getPort() + partition);
+  }
+
+  /**
+   * Returns the log directory of a partition.  A single partition uses the log directory itself,
+   * and each of several partitions uses a partition-&lt;p&gt; directory within it.
+   */
+  public File log(int partition) {
+    return partitions == 1 ? new File(log) : new File(log, "partition-" + partition);
+  }
 }
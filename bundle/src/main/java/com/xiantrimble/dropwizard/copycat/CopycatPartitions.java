@@ -0,0 +1,118 @@
+/**
+ * Copyright (C) 2015 Christian Trimble (xiantrimble@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xiantrimble.dropwizard.copycat;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import com.google.common.hash.Hashing;
+
+import io.atomix.copycat.Command;
+import io.atomix.copycat.Query;
+
+/**
+ * Routes operations to the client pools of hash partitioned Copycat groups.  Each key belongs to
+ * one partition, chosen by consistent hashing of the key's hash code, so every node must agree on
+ * the hash codes of keys.  Strings and boxed numbers do; enums and other objects with identity
+ * hash codes do not.
+ *
+ * Operations without a key, such as listing all of the keys, are submitted to every partition.
+ *
+ * @author Christian Trimble
+ */
+public class CopycatPartitions {
+
+  private final List<CopycatClientPool> pools;
+
+  public CopycatPartitions(List<CopycatClientPool> pools) {
+    if( pools.isEmpty() ) {
+      throw new IllegalArgumentException("at least one partition is required.");
+    }
+    this.pools = Collections.unmodifiableList(new ArrayList<>(pools));
+  }
+
+  /**
+   * Returns the partition of a key, out of the number of partitions.
+   */
+  public static int partition(Object key, int partitions) {
+    return Hashing.consistentHash(key.hashCode(), partitions);
+  }
+
+  public List<CopycatClientPool> getPools() {
+    return pools;
+  }
+
+  public int size() {
+    return pools.size();
+  }
+
+  public int partition(Object key) {
+    return partition(key, pools.size());
+  }
+
+  /**
+   * Groups keys by their partition.  The keys of each partition keep their order.
+   */
+  public <K> Map<Integer, List<K>> group(Collection<K> keys) {
+    return keys.stream().collect(Collectors.groupingBy(this::partition, TreeMap::new, Collectors.toList()));
+  }
+
+  /**
+   * Returns the client pool of the partition holding the key.
+   */
+  public CopycatClientPool pool(Object key) {
+    return pools.size() == 1 ? pools.get(0) : pools.get(partition(key));
+  }
+
+  public <T> CompletableFuture<T> submit(Object key, Command<T> command) {
+    return pool(key).client(key).submit(command);
+  }
+
+  public <T> CompletableFuture<T> submit(Object key, Query<T> query) {
+    return pool(key).queryClient(key).submit(query);
+  }
+
+  /**
+   * Submits a query from the supplier to every partition, completing with their results in
+   * partition order.
+   */
+  public <T> CompletableFuture<List<T>> submitAll(Supplier<? extends Query<T>> query) {
+    List<CompletableFuture<T>> results = pools.stream()
+        .map(pool -> pool.submit(query.get()))
+        .collect(Collectors.toList());
+    return CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[results.size()]))
+        .thenApply(done -> results.stream().map(CompletableFuture::join).collect(Collectors.toList()));
+  }
+
+  public CompletableFuture<Void> connect() {
+    return CompletableFuture.allOf(pools.stream()
+        .map(CopycatClientPool::connect)
+        .toArray(CompletableFuture<?>[]::new));
+  }
+
+  public CompletableFuture<Void> close() {
+    return CompletableFuture.allOf(pools.stream()
+        .map(CopycatClientPool::close)
+        .toArray(CompletableFuture<?>[]::new));
+  }
+}
@@ -0,0 +1,271 @@
+/**
+ * Copyright (C) 2015 Christian Trimble (xiantrimble@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xiantrimble.dropwizard.copycat;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import io.atomix.copycat.Query;
+import io.atomix.copycat.client.CopycatClient;
+
+/**
+ * Submits queries through the query sessions of a client pool, or of the pool of the key's
+ * partition, hedging sequential queries that
+ * are slow to answer.  When a sequential query has no answer after the hedge delay, it is sent
+ * again through another session, and the first answer wins.  The hedge delay is a percentile of
+ * the recent round trips of the first attempts, so only the slowest few percent of queries are
+ * sent twice.
+ *
+ * Hedges are sent through the next query session of the pool.  When the query sessions select
+ * followers by latency, each session is offset to prefer a different follower, so with two or more
+ * followers the hedge goes to another member than the first attempt.  Copycat only orders queries
+ * within a session, so a hedged answer may not reflect writes made through the first session.  Queries at other consistency levels are
+ * never hedged.
+ *
+ * The following metrics are registered under copycat.client.hedged:
+ *
+ * <ul>
+ * <li>latency - a timer of the round trips of first attempts.</li>
+ * <li>hedges - a meter of the hedges sent.</li>
+ * <li>hedge-wins - a meter of the hedges that answered first.</li>
+ * <li>delay - a gauge of the current hedge delay in milliseconds.</li>
+ * </ul>
+ *
+ * Instances built on the same registry share the meters and timer.  The delay gauge reports the
+ * instance that registered it, and is removed when that instance is closed.
+ *
+ * @author Christian Trimble
+ */
+public class HedgedQueries implements AutoCloseable {
+
+  public static class Builder {
+    private CopycatPartitions partitions;
+    private MetricRegistry metrics = new MetricRegistry();
+    private boolean enabled = true;
+    private double percentile = 0.95;
+    private Duration minDelay = Duration.ofMillis(1);
+
+    public HedgedQueries build() {
+      if( partitions == null ) {
+        throw new IllegalArgumentException("pool is required.");
+      }
+      return new HedgedQueries(partitions, metrics, enabled, percentile, minDelay);
+    }
+
+    public Builder withPool(CopycatClientPool pool) {
+      this.partitions = new CopycatPartitions(Collections.singletonList(pool));
+      return this;
+    }
+
+    /**
+     * Submits queries through the pools of the partitions of their keys.
+     */
+    public Builder withPartitions(CopycatPartitions partitions) {
+      this.partitions = partitions;
+      return this;
+    }
+
+    public Builder withMetrics(MetricRegistry metrics) {
+      this.metrics = metrics;
+      return this;
+    }
+
+    /**
+     * When false, queries are submitted once, through the pool's query session for their key.
+     */
+    public Builder withEnabled(boolean enabled) {
+      this.enabled = enabled;
+      return this;
+    }
+
+    /**
+     * Sets the percentile of first attempt round trips used as the hedge delay.
+     */
+    public Builder withPercentile(double percentile) {
+      if( percentile <= 0 || percentile >= 1 ) {
+        throw new IllegalArgumentException("percentile must be in (0, 1).");
+      }
+      this.percentile = percentile;
+      return this;
+    }
+
+    /**
+     * Sets the shortest hedge delay, which is used until enough round trips are seen.
+     */
+    public Builder withMinDelay(Duration minDelay) {
+      this.minDelay = minDelay;
+      return this;
+    }
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public static final String PREFIX = "copycat.client.hedged";
+  static final long DELAY_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  private final CopycatPartitions partitions;
+  private final boolean enabled;
+  private final double percentile;
+  private final long minDelayNanos;
+  private final Timer latency;
+  private final Meter hedges;
+  private final Meter hedgeWins;
+  private final Gauge<Double> delay;
+  private final MetricRegistry metrics;
+  private final ScheduledExecutorService scheduler;
+  private volatile long delayNanos;
+  private volatile long delayComputed;
+
+  HedgedQueries(CopycatPartitions partitions, MetricRegistry metrics, boolean enabled, double percentile, Duration minDelay) {
+    this.partitions = partitions;
+    this.enabled = enabled;
+    this.percentile = percentile;
+    this.minDelayNanos = minDelay.toNanos();
+    this.delayNanos = minDelayNanos;
+    this.delayComputed = System.nanoTime();
+    this.metrics = metrics;
+    this.latency = metrics.timer(MetricRegistry.name(PREFIX, "latency"));
+    this.hedges = metrics.meter(MetricRegistry.name(PREFIX, "hedges"));
+    this.hedgeWins = metrics.meter(MetricRegistry.name(PREFIX, "hedge-wins"));
+    this.delay = () -> delayNanos() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    metrics.gauge(MetricRegistry.name(PREFIX, "delay"), () -> delay);
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "copycat-hedged-queries");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Submits the query through the query session for the key, hedging it if it is sequential.
+   */
+  public <T> CompletableFuture<T> submit(Object key, Query<T> query) {
+    CopycatClientPool pool = partitions.pool(key);
+    CopycatClient primary = pool.queryClient(key);
+    List<CopycatClient> clients = pool.getQueryClients();
+    if( !enabled || clients.size() < 2 || query.consistency() != Query.ConsistencyLevel.SEQUENTIAL ) {
+      return primary.submit(query);
+    }
+    CopycatClient secondary = clients.get((clients.indexOf(primary) + 1) % clients.size());
+
+    Hedge<T> hedge = new Hedge<>(query, secondary);
+    Timer.Context time = latency.time();
+    primary.submit(query).whenComplete((value, error) -> {
+      time.stop();
+      if( error != null ) {
+        hedge.run();
+      }
+      hedge.answered(value, error);
+    });
+
+    ScheduledFuture<?> scheduled = scheduler.schedule(hedge, delayNanos(), TimeUnit.NANOSECONDS);
+    hedge.result.whenComplete((value, error) -> scheduled.cancel(false));
+
+    return hedge.result;
+  }
+
+  /**
+   * Returns the current hedge delay.  The percentile is recomputed at most once a second, since
+   * taking a snapshot of the timer copies its reservoir.
+   */
+  public long delayNanos() {
+    long now = System.nanoTime();
+    if( now - delayComputed > DELAY_REFRESH_NANOS ) {
+      delayComputed = now;
+      delayNanos = Math.max(minDelayNanos, (long) latency.getSnapshot().getValue(percentile));
+    }
+    return delayNanos;
+  }
+
+  /**
+   * A hedged query.  The hedge is sent at most once, when the delay passes or when the first
+   * attempt fails.  The result completes with the first answer, or fails when every attempt sent
+   * has failed.  Sending the hedge and counting failures share a lock, so a failure can not be
+   * reported while the hedge is being sent.
+   */
+  class Hedge<T> implements Runnable {
+    final Query<T> query;
+    final CopycatClient secondary;
+    final CompletableFuture<T> result = new CompletableFuture<>();
+    final AtomicBoolean won = new AtomicBoolean();
+    boolean sent;
+    int outstanding = 1;
+
+    Hedge(Query<T> query, CopycatClient secondary) {
+      this.query = query;
+      this.secondary = secondary;
+    }
+
+    @Override
+    public void run() {
+      synchronized( this ) {
+        if( result.isDone() || sent ) {
+          return;
+        }
+        sent = true;
+        outstanding++;
+      }
+      hedges.mark();
+      secondary.submit(query).whenComplete((value, error) -> answered(value, error, hedgeWins));
+    }
+
+    boolean answered(T value, Throwable error) {
+      return answered(value, error, null);
+    }
+
+    /**
+     * Completes the result with the first answer.  The meter, if any, is marked before the result
+     * completes, so callers see the win counted.
+     */
+    boolean answered(T value, Throwable error, Meter wins) {
+      if( error == null ) {
+        if( !won.compareAndSet(false, true) ) {
+          return false;
+        }
+        if( wins != null ) {
+          wins.mark();
+        }
+        return result.complete(value);
+      }
+      synchronized( this ) {
+        return --outstanding == 0 && result.completeExceptionally(error);
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    scheduler.shutdown();
+    String name = MetricRegistry.name(PREFIX, "delay");
+    if( metrics.getGauges().get(name) == delay ) {
+      metrics.remove(name);
+    }
+  }
+}
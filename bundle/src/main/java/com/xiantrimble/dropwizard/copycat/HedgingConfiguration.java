@@ -0,0 +1,77 @@
+/**
+ * Copyright (C) 2015 Christian Trimble (xiantrimble@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xiantrimble.dropwizard.copycat;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.NotNull;
+
+import io.dropwizard.util.Duration;
+import io.dropwizard.validation.MinDuration;
+
+/**
+ * Configuration for hedging sequential queries.  Hedging is off unless enabled.
+ *
+ * <pre>
+ * hedging:
+ *   enabled: true
+ *   percentile: 0.95
+ *   minDelay: 1ms
+ * </pre>
+ *
+ * @author Christian Trimble
+ */
+public class HedgingConfiguration {
+  protected boolean enabled = false;
+  @DecimalMin(value = "0", inclusive = false)
+  @DecimalMax(value = "1", inclusive = false)
+  protected double percentile = 0.95;
+  @NotNull
+  @MinDuration(value = 0, unit = TimeUnit.MILLISECONDS)
+  protected Duration minDelay = Duration.milliseconds(1);
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  /**
+   * The percentile of query round trips a query waits for before it is hedged.
+   */
+  public double getPercentile() {
+    return percentile;
+  }
+
+  public void setPercentile(double percentile) {
+    this.percentile = percentile;
+  }
+
+  /**
+   * The shortest a query waits before it is hedged.
+   */
+  public Duration getMinDelay() {
+    return minDelay;
+  }
+
+  public void setMinDelay(Duration minDelay) {
+    this.minDelay = minDelay;
+  }
+}
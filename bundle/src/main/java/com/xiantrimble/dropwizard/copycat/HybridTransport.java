@@ -0,0 +1,133 @@
+/**
+ * Copyright (C) 2015 Christian Trimble (xiantrimble@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xiantrimble.dropwizard.copycat;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import io.atomix.catalyst.transport.Address;
+import io.atomix.catalyst.transport.Client;
+import io.atomix.catalyst.transport.Connection;
+import io.atomix.catalyst.transport.Server;
+import io.atomix.catalyst.transport.Transport;
+import io.atomix.catalyst.transport.local.LocalServerRegistry;
+import io.atomix.catalyst.transport.local.LocalTransport;
+
+/**
+ * A transport that connects to servers in the same JVM in memory, and to all other servers over
+ * a remote transport.  Servers listen on both transports.  Clients use the in memory transport
+ * for any address that a server of this transport is listening on, so a client talking to its
+ * co-located server skips the socket and the serialization of its messages.
+ *
+ * Messages passed in memory are shared by reference, so they must not be changed after they are
+ * sent.
+ *
+ * @author Christian Trimble
+ */
+public class HybridTransport implements Transport {
+  private final Transport remote;
+  private final Transport local = new LocalTransport(new LocalServerRegistry());
+  private final Set<Address> localAddresses = ConcurrentHashMap.newKeySet();
+
+  public HybridTransport(Transport remote) {
+    this.remote = remote;
+  }
+
+  public Transport getRemote() {
+    return remote;
+  }
+
+  /**
+   * Returns true if a server of this transport is listening on the address.
+   */
+  public boolean isLocal(Address address) {
+    return localAddresses.contains(address);
+  }
+
+  @Override
+  public Client client() {
+    return new HybridClient();
+  }
+
+  @Override
+  public Server server() {
+    return new HybridServer();
+  }
+
+  @Override
+  public void close() {
+    try {
+      remote.close();
+    } finally {
+      local.close();
+    }
+  }
+
+  class HybridClient implements Client {
+    private final Client remoteClient = remote.client();
+    private volatile Client localClient;
+
+    @Override
+    public CompletableFuture<Connection> connect(Address address) {
+      if( isLocal(address) ) {
+        return localClient().connect(address);
+      }
+      return remoteClient.connect(address);
+    }
+
+    private synchronized Client localClient() {
+      if( localClient == null ) {
+        localClient = local.client();
+      }
+      return localClient;
+    }
+
+    @Override
+    public CompletableFuture<Void> close() {
+      Client localClient = this.localClient;
+      if( localClient == null ) {
+        return remoteClient.close();
+      }
+      return CompletableFuture.allOf(remoteClient.close(), localClient.close());
+    }
+  }
+
+  class HybridServer implements Server {
+    private final Server remoteServer = remote.server();
+    private final Server localServer = local.server();
+    private volatile Address address;
+
+    @Override
+    public CompletableFuture<Void> listen(Address address, Consumer<Connection> listener) {
+      return CompletableFuture.allOf(remoteServer.listen(address, listener), localServer.listen(address, listener))
+          .thenRun(() -> {
+            this.address = address;
+            localAddresses.add(address);
+          });
+    }
+
+    @Override
+    public CompletableFuture<Void> close() {
+      Address address = this.address;
+      if( address != null ) {
+        localAddresses.remove(address);
+      }
+      return CompletableFuture.allOf(remoteServer.close(), localServer.close());
+    }
+  }
+}
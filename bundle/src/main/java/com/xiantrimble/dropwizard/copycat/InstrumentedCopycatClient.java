@@ -0,0 +1,118 @@
+/**
+ * Copyright (C) 2015 Christian Trimble (xiantrimble@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xiantrimble.dropwizard.copycat;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import io.atomix.catalyst.concurrent.Listener;
+import io.atomix.catalyst.concurrent.ThreadContext;
+import io.atomix.catalyst.serializer.Serializer;
+import io.atomix.catalyst.transport.Address;
+import io.atomix.catalyst.transport.Transport;
+import io.atomix.copycat.Command;
+import io.atomix.copycat.Query;
+import io.atomix.copycat.client.CopycatClient;
+import io.atomix.copycat.session.Session;
+
+/**
+ * A client that records the operations submitted through it with client metrics.  Everything else
+ * is passed to the underlying client.
+ *
+ * @author Christian Trimble
+ */
+public class InstrumentedCopycatClient implements CopycatClient {
+  private final CopycatClient client;
+  private final ClientMetrics metrics;
+
+  InstrumentedCopycatClient(CopycatClient client, ClientMetrics metrics) {
+    this.client = client;
+    this.metrics = metrics;
+  }
+
+  /**
+   * Returns the client operations are passed to.
+   */
+  public CopycatClient getClient() {
+    return client;
+  }
+
+  @Override
+  public State state() {
+    return client.state();
+  }
+
+  @Override
+  public Listener<State> onStateChange(Consumer<State> callback) {
+    return client.onStateChange(callback);
+  }
+
+  @Override
+  public ThreadContext context() {
+    return client.context();
+  }
+
+  @Override
+  public Transport transport() {
+    return client.transport();
+  }
+
+  @Override
+  public Serializer serializer() {
+    return client.serializer();
+  }
+
+  @Override
+  public Session session() {
+    return client.session();
+  }
+
+  @Override
+  public <T> CompletableFuture<T> submit(Command<T> command) {
+    return metrics.submit(command, () -> client.submit(command));
+  }
+
+  @Override
+  public <T> CompletableFuture<T> submit(Query<T> query) {
+    return metrics.submit(query, () -> client.submit(query));
+  }
+
+  @Override
+  public Listener<Void> onEvent(String event, Runnable callback) {
+    return client.onEvent(event, callback);
+  }
+
+  @Override
+  public <T> Listener<T> onEvent(String event, Consumer<T> callback) {
+    return client.onEvent(event, callback);
+  }
+
+  @Override
+  public CompletableFuture<CopycatClient> connect(Collection<Address> members) {
+    return client.connect(members).thenApply(connected -> this);
+  }
+
+  @Override
+  public CompletableFuture<CopycatClient> recover() {
+    return client.recover().thenApply(recovered -> this);
+  }
+
+  @Override
+  public CompletableFuture<Void> close() {
+    return client.close();
+  }
+}
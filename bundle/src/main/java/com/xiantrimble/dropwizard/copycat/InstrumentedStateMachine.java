@@ -0,0 +1,89 @@
+/**
+ * Copyright (C) 2015 Christian Trimble (xiantrimble@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xiantrimble.dropwizard.copycat;
+
+import com.codahale.metrics.Timer;
+
+import io.atomix.copycat.server.Snapshottable;
+import io.atomix.copycat.server.StateMachine;
+import io.atomix.copycat.server.StateMachineExecutor;
+import io.atomix.copycat.server.storage.snapshot.SnapshotReader;
+import io.atomix.copycat.server.storage.snapshot.SnapshotWriter;
+
+/**
+ * A state machine that times the operations another state machine registers.  The wrapped state
+ * machine is configured with an executor that times each callback, and otherwise sees the
+ * server's executor.
+ *
+ * @author Christian Trimble
+ */
+public class InstrumentedStateMachine extends StateMachine {
+  protected final StateMachine stateMachine;
+  protected final StateMachineMetrics metrics;
+
+  public InstrumentedStateMachine(StateMachine stateMachine, StateMachineMetrics metrics) {
+    this.stateMachine = stateMachine;
+    this.metrics = metrics;
+  }
+
+  public StateMachine getStateMachine() {
+    return stateMachine;
+  }
+
+  @Override
+  public void init(StateMachineExecutor executor) {
+    stateMachine.init(new InstrumentedStateMachineExecutor(executor, metrics));
+  }
+
+  @Override
+  public void close() {
+    stateMachine.close();
+  }
+
+  /**
+   * An instrumented state machine for snapshottable state machines, which also times writing and
+   * installing snapshots.
+   */
+  public static class Snapshotting extends InstrumentedStateMachine implements Snapshottable {
+
+    public Snapshotting(StateMachine stateMachine, StateMachineMetrics metrics) {
+      super(stateMachine, metrics);
+      if( !(stateMachine instanceof Snapshottable) ) {
+        throw new IllegalArgumentException("the state machine must be snapshottable.");
+      }
+    }
+
+    @Override
+    public void snapshot(SnapshotWriter writer) {
+      Timer.Context time = metrics.snapshot().time();
+      try {
+        ((Snapshottable) stateMachine).snapshot(writer);
+      } finally {
+        time.stop();
+      }
+    }
+
+    @Override
+    public void install(SnapshotReader reader) {
+      Timer.Context time = metrics.install().time();
+      try {
+        ((Snapshottable) stateMachine).install(reader);
+      } finally {
+        time.stop();
+      }
+    }
+  }
+}
@@ -0,0 +1,136 @@
+/**
+ * Copyright (C) 2015 Christian Trimble (xiantrimble@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xiantrimble.dropwizard.copycat;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+
+import com.codahale.metrics.Timer;
+
+import io.atomix.catalyst.concurrent.Scheduled;
+import io.atomix.catalyst.serializer.Serializer;
+import io.atomix.copycat.Operation;
+import io.atomix.copycat.server.Commit;
+import io.atomix.copycat.server.StateMachineContext;
+import io.atomix.copycat.server.StateMachineExecutor;
+
+/**
+ * An executor that times the callbacks registered with it, and passes everything else to the
+ * server's executor.
+ *
+ * @author Christian Trimble
+ */
+public class InstrumentedStateMachineExecutor implements StateMachineExecutor {
+  private final StateMachineExecutor executor;
+  private final StateMachineMetrics metrics;
+
+  public InstrumentedStateMachineExecutor(StateMachineExecutor executor, StateMachineMetrics metrics) {
+    this.executor = executor;
+    this.metrics = metrics;
+  }
+
+  @Override
+  public StateMachineContext context() {
+    return executor.context();
+  }
+
+  @Override
+  public <T extends Operation<Void>> StateMachineExecutor register(Class<T> type, Consumer<Commit<T>> callback) {
+    Timer timer = metrics.apply(type);
+    executor.register(type, (Commit<T> commit) -> {
+      Timer.Context time = timer.time();
+      try {
+        callback.accept(commit);
+      } finally {
+        time.stop();
+      }
+    });
+    return this;
+  }
+
+  @Override
+  public <T extends Operation<U>, U> StateMachineExecutor register(Class<T> type, Function<Commit<T>, U> callback) {
+    Timer timer = metrics.apply(type);
+    executor.register(type, (Commit<T> commit) -> {
+      Timer.Context time = timer.time();
+      try {
+        return callback.apply(commit);
+      } finally {
+        time.stop();
+      }
+    });
+    return this;
+  }
+
+  @Override
+  public boolean isCurrentContext() {
+    return executor.isCurrentContext();
+  }
+
+  @Override
+  public void checkThread() {
+    executor.checkThread();
+  }
+
+  @Override
+  public Logger logger() {
+    return executor.logger();
+  }
+
+  @Override
+  public Serializer serializer() {
+    return executor.serializer();
+  }
+
+  @Override
+  public Executor executor() {
+    return executor.executor();
+  }
+
+  @Override
+  public boolean isBlocked() {
+    return executor.isBlocked();
+  }
+
+  @Override
+  public void block() {
+    executor.block();
+  }
+
+  @Override
+  public void unblock() {
+    executor.unblock();
+  }
+
+  @Override
+  public Scheduled schedule(Duration delay, Runnable callback) {
+    return executor.schedule(delay, callback);
+  }
+
+  @Override
+  public Scheduled schedule(Duration initialDelay, Duration interval, Runnable callback) {
+    return executor.schedule(initialDelay, interval, callback);
+  }
+
+  @Override
+  public void close() {
+    executor.close();
+  }
+}
@@ -0,0 +1,136 @@
+/**
+ * Copyright (C) 2015 Christian Trimble (xiantrimble@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xiantrimble.dropwizard.copycat;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import io.atomix.copycat.Command;
+import io.atomix.copycat.Query;
+import io.atomix.copycat.server.Commit;
+import io.atomix.copycat.server.StateMachine;
+import io.atomix.copycat.server.StateMachineExecutor;
+
+/**
+ * A base for state machines that map keys to values.  The latest put commit for each key is held
+ * until it is overwritten or deleted and then released, so the log can be compacted down to the
+ * live keys.  Deletes are tombstones, which Copycat keeps until the puts they remove have been
+ * compacted away.
+ *
+ * Any operation that implements {@link Put}, {@link Delete} or {@link Get} is handled by this class.
+ * Subclasses with other operations must register them in configure, after calling super.configure.
+ *
+ * The state of this machine lives in the log, so subclasses should not also be Snapshottable.
+ *
+ * @author Christian Trimble
+ */
+public abstract class KeyedStateMachine<K, V> extends StateMachine {
+
+  /**
+   * Sets the value of a key, returning the previous value.
+   */
+  public interface Put<K, V> extends Command<V> {
+    K key();
+
+    V value();
+
+    @Override
+    default CompactionMode compaction() {
+      return CompactionMode.QUORUM;
+    }
+  }
+
+  /**
+   * Removes a key, returning the removed value.
+   */
+  public interface Delete<K, V> extends Command<V> {
+    K key();
+
+    @Override
+    default CompactionMode compaction() {
+      return CompactionMode.TOMBSTONE;
+    }
+  }
+
+  /**
+   * Reads the value of a key.
+   */
+  public interface Get<K, V> extends Query<V> {
+    K key();
+  }
+
+  private final Map<K, Commit<? extends Put<K, V>>> commits = new HashMap<>();
+
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  @Override
+  protected void configure(StateMachineExecutor executor) {
+    executor.register((Class<Put<K, V>>) (Class) Put.class, this::put);
+    executor.register((Class<Delete<K, V>>) (Class) Delete.class, this::delete);
+    executor.register((Class<Get<K, V>>) (Class) Get.class, this::get);
+  }
+
+  public V put(Commit<? extends Put<K, V>> commit) {
+    Commit<? extends Put<K, V>> previous = commits.put(commit.operation().key(), commit);
+    return release(previous);
+  }
+
+  public V delete(Commit<? extends Delete<K, V>> commit) {
+    try {
+      return release(commits.remove(commit.operation().key()));
+    } finally {
+      commit.release();
+    }
+  }
+
+  public V get(Commit<? extends Get<K, V>> commit) {
+    try {
+      return value(commit.operation().key());
+    } finally {
+      commit.release();
+    }
+  }
+
+  /**
+   * Returns the current value of the key, or null if the key is not set.
+   */
+  protected V value(K key) {
+    Commit<? extends Put<K, V>> commit = commits.get(key);
+    return commit != null ? commit.operation().value() : null;
+  }
+
+  /**
+   * Returns a read only view of the keys that are set.
+   */
+  protected Set<K> keys() {
+    return Collections.unmodifiableSet(commits.keySet());
+  }
+
+  protected int size() {
+    return commits.size();
+  }
+
+  private V release(Commit<? extends Put<K, V>> commit) {
+    if (commit == null) {
+      return null;
+    }
+    // the operation cannot be read once the commit is released.
+    V value = commit.operation().value();
+    commit.release();
+    return value;
+  }
+}
@@ -0,0 +1,124 @@
+/**
+ * Copyright (C) 2015 Christian Trimble (xiantrimble@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xiantrimble.dropwizard.copycat;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import io.atomix.catalyst.concurrent.Listener;
+import io.atomix.catalyst.transport.Address;
+import io.atomix.catalyst.transport.Client;
+import io.atomix.catalyst.transport.Connection;
+import io.atomix.catalyst.transport.Server;
+import io.atomix.catalyst.transport.Transport;
+
+/**
+ * A transport whose client connections time each request and response, and report the round trip
+ * to a least latency strategy.  Servers are not changed.
+ *
+ * @author Christian Trimble
+ */
+public class LatencyRecordingTransport implements Transport {
+  private final Transport transport;
+  private final LeastLatencyStrategy strategy;
+
+  public LatencyRecordingTransport(Transport transport, LeastLatencyStrategy strategy) {
+    this.transport = transport;
+    this.strategy = strategy;
+  }
+
+  @Override
+  public Client client() {
+    Client client = transport.client();
+    return new Client() {
+      @Override
+      public CompletableFuture<Connection> connect(Address address) {
+        return client.connect(address).thenApply(connection -> new RecordingConnection(address, connection));
+      }
+
+      @Override
+      public CompletableFuture<Void> close() {
+        return client.close();
+      }
+    };
+  }
+
+  @Override
+  public Server server() {
+    return transport.server();
+  }
+
+  @Override
+  public void close() {
+    transport.close();
+  }
+
+  class RecordingConnection implements Connection {
+    private final Address address;
+    private final Connection connection;
+
+    RecordingConnection(Address address, Connection connection) {
+      this.address = address;
+      this.connection = connection;
+    }
+
+    @Override
+    public CompletableFuture<Void> send(Object message) {
+      return connection.send(message);
+    }
+
+    @Override
+    public <T, U> CompletableFuture<U> sendAndReceive(T request) {
+      long start = System.nanoTime();
+      return connection.<T, U>sendAndReceive(request).whenComplete((response, error) -> {
+        if( error == null ) {
+          strategy.record(address, System.nanoTime() - start);
+        }
+      });
+    }
+
+    @Override
+    public <T, U> Connection handler(Class<T> type, Consumer<T> handler) {
+      connection.handler(type, handler);
+      return this;
+    }
+
+    @Override
+    public <T, U> Connection handler(Class<T> type, Function<T, CompletableFuture<U>> handler) {
+      connection.handler(type, handler);
+      return this;
+    }
+
+    @Override
+    public Listener<Throwable> onException(Consumer<Throwable> listener) {
+      return connection.onException(listener);
+    }
+
+    /**
+     * Listeners are given this connection, since clients compare it with the connection they hold.
+     */
+    @Override
+    public Listener<Connection> onClose(Consumer<Connection> listener) {
+      return connection.onClose(closed -> listener.accept(this));
+    }
+
+    @Override
+    public CompletableFuture<Void> close() {
+      return connection.close();
+    }
+  }
+}
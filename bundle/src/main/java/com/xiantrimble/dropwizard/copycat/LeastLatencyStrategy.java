@@ -0,0 +1,107 @@
+/**
+ * Copyright (C) 2015 Christian Trimble (xiantrimble@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xiantrimble.dropwizard.copycat;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import io.atomix.catalyst.transport.Address;
+import io.atomix.catalyst.transport.Transport;
+import io.atomix.copycat.client.ServerSelectionStrategies;
+import io.atomix.copycat.client.ServerSelectionStrategy;
+
+/**
+ * Orders the followers by an exponentially weighted moving average of the round trip times
+ * observed on connections to them, with the leader last.  Servers without a recorded round trip
+ * sort first, so new sessions try them and the averages cover the whole cluster over time.
+ *
+ * Round trips are recorded by the transport returned from recording, and should be shared by
+ * all of the sessions using this strategy.  Sessions of a pool can use offset strategies, so each
+ * prefers a different follower rather than every session connecting to the fastest one.
+ *
+ * @author Christian Trimble
+ */
+public class LeastLatencyStrategy implements ServerSelectionStrategy {
+  public static final double DEFAULT_WEIGHT = 0.2;
+
+  private final double weight;
+  private final ConcurrentMap<Address, Double> latencies = new ConcurrentHashMap<>();
+
+  public LeastLatencyStrategy() {
+    this(DEFAULT_WEIGHT);
+  }
+
+  /**
+   * @param weight the weight of each new sample in the average, between 0 exclusive and 1
+   * inclusive.
+   */
+  public LeastLatencyStrategy(double weight) {
+    if( weight <= 0 || weight > 1 ) {
+      throw new IllegalArgumentException("weight must be in (0, 1].");
+    }
+    this.weight = weight;
+  }
+
+  /**
+   * Adds a round trip to the server to its average.
+   */
+  public void record(Address address, long nanos) {
+    latencies.merge(address, (double) nanos, (average, sample) -> average + weight * (sample - average));
+  }
+
+  /**
+   * Returns the average round trip to the server in nanoseconds, or null if none was recorded.
+   */
+  public Double latency(Address address) {
+    return latencies.get(address);
+  }
+
+  /**
+   * Returns a transport that records the round trips of the requests sent by its clients.
+   */
+  public Transport recording(Transport transport) {
+    return new LatencyRecordingTransport(transport, this);
+  }
+
+  /**
+   * Returns a strategy sharing these averages that rotates the ordered followers by the offset,
+   * such as the index of a session in its pool, so it prefers the follower at that offset.  The
+   * leader stays last.
+   */
+  public ServerSelectionStrategy offset(int offset) {
+    return offset == 0 ? this : (leader, servers) -> selectConnections(leader, servers, offset);
+  }
+
+  @Override
+  public List<Address> selectConnections(Address leader, List<Address> servers) {
+    return selectConnections(leader, servers, 0);
+  }
+
+  List<Address> selectConnections(Address leader, List<Address> servers, int offset) {
+    List<Address> selections = ServerSelectionStrategies.FOLLOWERS.selectConnections(leader, servers);
+    selections.sort(Comparator.comparingDouble(address -> latencies.getOrDefault(address, 0d)));
+    if( !selections.isEmpty() ) {
+      Collections.rotate(selections, -(offset % selections.size()));
+    }
+    if( leader != null && !selections.contains(leader) ) {
+      selections.add(leader);
+    }
+    return selections;
+  }
+}
@@ -0,0 +1,257 @@
+/**
+ * Copyright (C) 2015 Christian Trimble (xiantrimble@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xiantrimble.dropwizard.copycat;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+import io.atomix.catalyst.buffer.BufferInput;
+import io.atomix.catalyst.buffer.BufferOutput;
+import io.atomix.catalyst.serializer.CatalystSerializable;
+import io.atomix.catalyst.serializer.Serializer;
+import io.atomix.copycat.Command;
+import io.atomix.copycat.Operation;
+import io.atomix.copycat.Query;
+import io.atomix.copycat.server.Commit;
+import io.atomix.copycat.server.Snapshottable;
+import io.atomix.copycat.server.StateMachine;
+import io.atomix.copycat.server.StateMachineExecutor;
+import io.atomix.copycat.server.storage.snapshot.SnapshotReader;
+import io.atomix.copycat.server.storage.snapshot.SnapshotWriter;
+
+/**
+ * A state machine that hosts several state machines in one Copycat group, so they share a log,
+ * a leader and a replication pipeline.  Each state machine is registered under a namespace, and
+ * operations are submitted to it wrapped in a {@link NamespacedCommand} or {@link NamespacedQuery}.
+ * The hosted state machines register their operations as usual, and see their own operations in
+ * the commits they are given.
+ *
+ * Every server of the group must host the same namespaces.
+ *
+ * @author Christian Trimble
+ */
+public class MultiplexedStateMachine extends StateMachine {
+
+  /**
+   * An operation for the state machine of a namespace.
+   */
+  public interface Namespaced<T> extends Operation<T> {
+    String namespace();
+
+    Operation<T> operation();
+  }
+
+  protected final Map<String, StateMachine> stateMachines;
+  private final Map<String, NamespaceExecutor> executors = new HashMap<>();
+
+  public MultiplexedStateMachine(Map<String, ? extends StateMachine> stateMachines) {
+    this.stateMachines = Collections.unmodifiableMap(new TreeMap<>(stateMachines));
+  }
+
+  /**
+   * Returns a supplier of state machines that host a new state machine from each supplier, under
+   * the supplier's namespace.  When any of the hosted state machines are snapshottable, the
+   * multiplexed state machine is too.
+   */
+  public static Supplier<StateMachine> supplier(Map<String, ? extends Supplier<? extends StateMachine>> suppliers) {
+    Map<String, Supplier<? extends StateMachine>> namespaces = new TreeMap<>(suppliers);
+    return () -> {
+      Map<String, StateMachine> stateMachines = new TreeMap<>();
+      namespaces.forEach((namespace, supplier) -> stateMachines.put(namespace, supplier.get()));
+      return stateMachines.values().stream().anyMatch(Snapshottable.class::isInstance)
+          ? new MultiplexedStateMachine.Snapshotting(stateMachines)
+          : new MultiplexedStateMachine(stateMachines);
+    };
+  }
+
+  /**
+   * Wraps a command for the state machine of a namespace.
+   */
+  public static <T> NamespacedCommand<T> command(String namespace, Command<T> command) {
+    return new NamespacedCommand<>(namespace, command);
+  }
+
+  /**
+   * Wraps a query for the state machine of a namespace.
+   */
+  public static <T> NamespacedQuery<T> query(String namespace, Query<T> query) {
+    return new NamespacedQuery<>(namespace, query);
+  }
+
+  public Map<String, StateMachine> getStateMachines() {
+    return stateMachines;
+  }
+
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  @Override
+  protected void configure(StateMachineExecutor executor) {
+    stateMachines.forEach((namespace, stateMachine) -> {
+      NamespaceExecutor namespaceExecutor = new NamespaceExecutor(namespace, executor);
+      executors.put(namespace, namespaceExecutor);
+      stateMachine.init(namespaceExecutor);
+    });
+    executor.register((Class<NamespacedCommand<Object>>) (Class) NamespacedCommand.class, this::apply);
+    executor.register((Class<NamespacedQuery<Object>>) (Class) NamespacedQuery.class, this::apply);
+  }
+
+  /**
+   * Passes a commit to the state machine of its namespace.
+   */
+  public Object apply(Commit<? extends Namespaced<Object>> commit) {
+    NamespaceExecutor executor = executors.get(commit.operation().namespace());
+    if( executor == null ) {
+      String namespace = commit.operation().namespace();
+      commit.close();
+      throw new IllegalStateException("unknown namespace " + namespace);
+    }
+    return executor.apply(commit);
+  }
+
+  @Override
+  public void close() {
+    stateMachines.values().forEach(StateMachine::close);
+  }
+
+  /**
+   * A multiplexed state machine that snapshots each of its snapshottable state machines, after the
+   * name of its namespace.  Hosted state machines that are not snapshottable keep their state in
+   * the log, so their commands must not use the DEFAULT or SNAPSHOT compaction modes, which
+   * snapshottable state machines compact away after a snapshot.
+   */
+  public static class Snapshotting extends MultiplexedStateMachine implements Snapshottable {
+
+    public Snapshotting(Map<String, ? extends StateMachine> stateMachines) {
+      super(stateMachines);
+    }
+
+    @Override
+    public void snapshot(SnapshotWriter writer) {
+      writer.writeInt((int) stateMachines.values().stream().filter(Snapshottable.class::isInstance).count());
+      stateMachines.forEach((namespace, stateMachine) -> {
+        if( stateMachine instanceof Snapshottable ) {
+          writer.writeString(namespace);
+          ((Snapshottable) stateMachine).snapshot(writer);
+        }
+      });
+    }
+
+    @Override
+    public void install(SnapshotReader reader) {
+      int size = reader.readInt();
+      for( int i = 0; i < size; i++ ) {
+        String namespace = reader.readString();
+        StateMachine stateMachine = stateMachines.get(namespace);
+        if( !(stateMachine instanceof Snapshottable) ) {
+          throw new IllegalStateException("the snapshot of namespace " + namespace + " cannot be installed.");
+        }
+        ((Snapshottable) stateMachine).install(reader);
+      }
+    }
+  }
+
+  /**
+   * A command for the state machine of a namespace.  The command's compaction mode is used for the
+   * wrapper.
+   */
+  public static class NamespacedCommand<T> implements Command<T>, Namespaced<T>, CatalystSerializable {
+    private static final long serialVersionUID = 1L;
+    private String namespace;
+    private Command<T> command;
+
+    public NamespacedCommand() {
+    }
+
+    public NamespacedCommand(String namespace, Command<T> command) {
+      this.namespace = namespace;
+      this.command = command;
+    }
+
+    @Override
+    public String namespace() {
+      return namespace;
+    }
+
+    @Override
+    public Command<T> operation() {
+      return command;
+    }
+
+    @Override
+    public CompactionMode compaction() {
+      return command.compaction();
+    }
+
+    @Override
+    public void writeObject(BufferOutput<?> buffer, Serializer serializer) {
+      buffer.writeString(namespace);
+      serializer.writeObject(command, buffer);
+    }
+
+    @Override
+    public void readObject(BufferInput<?> buffer, Serializer serializer) {
+      namespace = buffer.readString();
+      command = serializer.readObject(buffer);
+    }
+  }
+
+  /**
+   * A query for the state machine of a namespace.  The query's consistency level is used for the
+   * wrapper.
+   */
+  public static class NamespacedQuery<T> implements Query<T>, Namespaced<T>, CatalystSerializable {
+    private static final long serialVersionUID = 1L;
+    private String namespace;
+    private Query<T> query;
+
+    public NamespacedQuery() {
+    }
+
+    public NamespacedQuery(String namespace, Query<T> query) {
+      this.namespace = namespace;
+      this.query = query;
+    }
+
+    @Override
+    public String namespace() {
+      return namespace;
+    }
+
+    @Override
+    public Query<T> operation() {
+      return query;
+    }
+
+    @Override
+    public ConsistencyLevel consistency() {
+      return query.consistency();
+    }
+
+    @Override
+    public void writeObject(BufferOutput<?> buffer, Serializer serializer) {
+      buffer.writeString(namespace);
+      serializer.writeObject(query, buffer);
+    }
+
+    @Override
+    public void readObject(BufferInput<?> buffer, Serializer serializer) {
+      namespace = buffer.readString();
+      query = serializer.readObject(buffer);
+    }
+  }
+}
@@ -0,0 +1,226 @@
+/**
+ * Copyright (C) 2015 Christian Trimble (xiantrimble@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xiantrimble.dropwizard.copycat;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+
+import io.atomix.catalyst.concurrent.Scheduled;
+import io.atomix.catalyst.serializer.Serializer;
+import io.atomix.copycat.Operation;
+import io.atomix.copycat.server.Commit;
+import io.atomix.copycat.server.StateMachineContext;
+import io.atomix.copycat.server.StateMachineExecutor;
+import io.atomix.copycat.server.session.ServerSession;
+
+/**
+ * The executor of a namespace of a multiplexed state machine.  The callbacks registered with it
+ * are kept, and applied to the commits of the namespace, and everything else is passed to the
+ * server's executor.
+ *
+ * @author Christian Trimble
+ */
+class NamespaceExecutor implements StateMachineExecutor {
+  private final String namespace;
+  private final StateMachineExecutor executor;
+  private final Map<Class<?>, Function<Commit<?>, ?>> operations = new HashMap<>();
+
+  NamespaceExecutor(String namespace, StateMachineExecutor executor) {
+    this.namespace = namespace;
+    this.executor = executor;
+  }
+
+  /**
+   * Applies the callback registered for the wrapped operation of a commit.  Like the server's
+   * executor, a callback registered for a supertype of the operation is used when there is not one
+   * for its own type.
+   */
+  Object apply(Commit<? extends MultiplexedStateMachine.Namespaced<?>> commit) {
+    Operation<?> operation = commit.operation().operation();
+    Function<Commit<?>, ?> callback = callback(operation.getClass());
+    if( callback == null ) {
+      commit.close();
+      throw new IllegalStateException("unknown operation " + operation.getClass() + " in namespace " + namespace);
+    }
+    return callback.apply(new NamespacedCommit<>(commit, operation));
+  }
+
+  private Function<Commit<?>, ?> callback(Class<?> type) {
+    Function<Commit<?>, ?> callback = operations.get(type);
+    if( callback == null ) {
+      for( Map.Entry<Class<?>, Function<Commit<?>, ?>> entry : operations.entrySet() ) {
+        if( entry.getKey().isAssignableFrom(type) ) {
+          callback = entry.getValue();
+          operations.put(type, callback);
+          break;
+        }
+      }
+    }
+    return callback;
+  }
+
+  @Override
+  public StateMachineContext context() {
+    return executor.context();
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public <T extends Operation<Void>> StateMachineExecutor register(Class<T> type, Consumer<Commit<T>> callback) {
+    operations.put(type, commit -> {
+      callback.accept((Commit<T>) commit);
+      return null;
+    });
+    return this;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public <T extends Operation<U>, U> StateMachineExecutor register(Class<T> type, Function<Commit<T>, U> callback) {
+    operations.put(type, commit -> callback.apply((Commit<T>) commit));
+    return this;
+  }
+
+  @Override
+  public boolean isCurrentContext() {
+    return executor.isCurrentContext();
+  }
+
+  @Override
+  public void checkThread() {
+    executor.checkThread();
+  }
+
+  @Override
+  public Logger logger() {
+    return executor.logger();
+  }
+
+  @Override
+  public Serializer serializer() {
+    return executor.serializer();
+  }
+
+  @Override
+  public Executor executor() {
+    return executor.executor();
+  }
+
+  @Override
+  public boolean isBlocked() {
+    return executor.isBlocked();
+  }
+
+  @Override
+  public void block() {
+    executor.block();
+  }
+
+  @Override
+  public void unblock() {
+    executor.unblock();
+  }
+
+  @Override
+  public Scheduled schedule(Duration delay, Runnable callback) {
+    return executor.schedule(delay, callback);
+  }
+
+  @Override
+  public Scheduled schedule(Duration initialDelay, Duration interval, Runnable callback) {
+    return executor.schedule(initialDelay, interval, callback);
+  }
+
+  /**
+   * The server's executor is closed by the server.
+   */
+  @Override
+  public void close() {
+  }
+
+  /**
+   * A commit of a namespaced operation, as seen by the state machine of the namespace.  Releasing
+   * it releases the commit of the namespaced operation.
+   */
+  static class NamespacedCommit<T extends Operation<?>> implements Commit<T> {
+    private final Commit<?> commit;
+    private final T operation;
+
+    NamespacedCommit(Commit<?> commit, T operation) {
+      this.commit = commit;
+      this.operation = operation;
+    }
+
+    @Override
+    public long index() {
+      return commit.index();
+    }
+
+    @Override
+    public ServerSession session() {
+      return commit.session();
+    }
+
+    @Override
+    public Instant time() {
+      return commit.time();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Class<T> type() {
+      return (Class<T>) operation.getClass();
+    }
+
+    @Override
+    public T operation() {
+      return operation;
+    }
+
+    @Override
+    public Commit<T> acquire() {
+      commit.acquire();
+      return this;
+    }
+
+    @Override
+    public boolean release() {
+      return commit.release();
+    }
+
+    @Override
+    public int references() {
+      return commit.references();
+    }
+
+    @Override
+    public void close() {
+      commit.close();
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s[index=%d, operation=%s]", getClass().getSimpleName(), index(), operation);
+    }
+  }
+}
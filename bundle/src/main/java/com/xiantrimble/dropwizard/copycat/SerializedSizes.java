@@ -0,0 +1,152 @@
+/**
+ * Copyright (C) 2015 Christian Trimble (xiantrimble@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xiantrimble.dropwizard.copycat;
+
+import java.io.Externalizable;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+
+import io.atomix.catalyst.buffer.Buffer;
+import io.atomix.catalyst.buffer.BufferInput;
+import io.atomix.catalyst.buffer.BufferOutput;
+import io.atomix.catalyst.buffer.HeapBuffer;
+import io.atomix.catalyst.serializer.CatalystSerializable;
+import io.atomix.catalyst.serializer.Serializer;
+import io.atomix.catalyst.serializer.TypeSerializer;
+import io.atomix.catalyst.serializer.TypeSerializerFactory;
+import io.atomix.catalyst.serializer.util.CatalystSerializableSerializer;
+import io.atomix.catalyst.serializer.util.ExternalizableSerializer;
+import io.atomix.catalyst.serializer.util.JavaSerializableSerializer;
+
+/**
+ * Records the number of bytes each type is serialized to, in a histogram named
+ * copycat.serializer.&lt;type&gt;.bytes.  Sizes are recorded once a metric registry is set.
+ *
+ * Values written to a Catalyst buffer, like log entries, are measured by how far they move the
+ * buffer's position.  Other outputs, like Netty's, do not report their position, so values written
+ * to them are written to a reusable buffer for the thread and then copied to the output.  Values
+ * nested in a measured value, like an operation in a log entry, are measured too, and also counted
+ * in the outer value.
+ *
+ * Measuring adds work to every message, so the bundle only installs it when the configuration
+ * asks for serialized sizes.
+ *
+ * @author Christian Trimble
+ */
+public class SerializedSizes {
+  public static final String PREFIX = "copycat.serializer";
+
+  private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+
+  private volatile MetricRegistry metrics;
+  private final Map<Class<?>, Histogram> sizes = new ConcurrentHashMap<>();
+
+  public void setMetrics(MetricRegistry metrics) {
+    this.metrics = metrics;
+  }
+
+  /**
+   * Replaces the serializer's defaults for Java, externalizable and Catalyst serializable types
+   * with measured ones, so operations that are not registered are measured.  The defaults are
+   * registered in Catalyst's order, which keeps Catalyst serializable first.
+   */
+  public Serializer instrument(Serializer serializer) {
+    serializer.registerDefault(Serializable.class, measure(type -> new JavaSerializableSerializer<>()));
+    serializer.registerDefault(Externalizable.class, measure(type -> new ExternalizableSerializer()));
+    serializer.registerDefault(CatalystSerializable.class, measure(type -> new CatalystSerializableSerializer<>()));
+    return serializer;
+  }
+
+  /**
+   * Returns a factory whose serializers record the sizes of the values they write.
+   */
+  public TypeSerializerFactory measure(TypeSerializerFactory factory) {
+    return type -> new MeasuredTypeSerializer<>(factory.createSerializer(type));
+  }
+
+  void record(Class<?> type, long bytes) {
+    MetricRegistry metrics = this.metrics;
+    if( metrics != null ) {
+      sizes.computeIfAbsent(type, t -> metrics.histogram(MetricRegistry.name(PREFIX, t.getName(), "bytes"))).update(bytes);
+    }
+  }
+
+  class MeasuredTypeSerializer<T> implements TypeSerializer<T> {
+    private final TypeSerializer<T> serializer;
+
+    @SuppressWarnings("unchecked")
+    MeasuredTypeSerializer(TypeSerializer<?> serializer) {
+      this.serializer = (TypeSerializer<T>) serializer;
+    }
+
+    @Override
+    public void write(T object, @SuppressWarnings("rawtypes") BufferOutput buffer, Serializer serializer) {
+      if( metrics == null ) {
+        this.serializer.write(object, buffer, serializer);
+        return;
+      }
+      if( buffer instanceof Buffer ) {
+        long start = ((Buffer) buffer).position();
+        this.serializer.write(object, buffer, serializer);
+        record(object.getClass(), ((Buffer) buffer).position() - start);
+        return;
+      }
+      Buffers buffers = BUFFERS.get();
+      Buffer measured = buffers.push();
+      try {
+        this.serializer.write(object, measured, serializer);
+      } finally {
+        buffers.pop();
+      }
+      measured.flip();
+      record(object.getClass(), measured.remaining());
+      // Netty's output only copies as much of a buffer as fits in its current capacity.
+      byte[] bytes = new byte[(int) measured.remaining()];
+      measured.read(bytes);
+      buffer.write(bytes);
+    }
+
+    @Override
+    public T read(Class<T> type, @SuppressWarnings("rawtypes") BufferInput buffer, Serializer serializer) {
+      return this.serializer.read(type, buffer, serializer);
+    }
+  }
+
+  /**
+   * The buffers of a thread, one for each level of nesting.
+   */
+  static class Buffers {
+    private final List<Buffer> buffers = new ArrayList<>();
+    private int depth;
+
+    Buffer push() {
+      if( depth == buffers.size() ) {
+        buffers.add(HeapBuffer.allocate(1024));
+      }
+      return buffers.get(depth++).clear();
+    }
+
+    void pop() {
+      depth--;
+    }
+  }
+}
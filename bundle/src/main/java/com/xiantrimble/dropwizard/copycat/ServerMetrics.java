@@ -0,0 +1,107 @@
+/**
+ * Copyright (C) 2015 Christian Trimble (xiantrimble@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xiantrimble.dropwizard.copycat;
+
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.function.Supplier;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+import io.atomix.catalyst.transport.Address;
+import io.atomix.copycat.server.CopycatServer;
+import io.atomix.copycat.server.CopycatServerAccess;
+import io.atomix.copycat.server.state.ServerContext;
+import io.atomix.copycat.server.state.ServerContextAccess;
+
+/**
+ * Reports the Raft state of the local server, and, while it leads, how far behind each of the
+ * other members is.  The following gauges are registered under copycat.server:
+ *
+ * <ul>
+ * <li>term, role and commit-index - the state of the local server.</li>
+ * <li>members.&lt;host:port&gt;.match-index - the last entry the leader knows the member has.</li>
+ * <li>members.&lt;host:port&gt;.lag-entries - the entries in the leader's log the member does not
+ * have yet.</li>
+ * <li>members.&lt;host:port&gt;.lag-ms - the time since the leader last heard back from the
+ * member.</li>
+ * </ul>
+ *
+ * Servers registered with a scope, such as the partition they serve, have their gauges under
+ * copycat.server.&lt;scope&gt;.  The member gauges are null on servers that are not the leader.  The last applied index is
+ * reported by the state machine metrics.
+ *
+ * The gauges read the server's state without synchronizing with it, so they may be slightly stale.
+ *
+ * @author Christian Trimble
+ */
+public class ServerMetrics {
+  public static final String PREFIX = "copycat.server";
+
+  private final MetricRegistry metrics;
+
+  public ServerMetrics(MetricRegistry metrics) {
+    this.metrics = metrics;
+  }
+
+  /**
+   * Registers the gauges of the server, and of the other members in the list.
+   */
+  public void register(CopycatServer server, Address address, Collection<Address> members) {
+    register(server, address, members, null);
+  }
+
+  /**
+   * Registers the gauges of the server, and of the other members in the list, under the scope,
+   * such as the server's partition.
+   */
+  public void register(CopycatServer server, Address address, Collection<Address> members, String scope) {
+    ServerContext context = CopycatServerAccess.context(server);
+    register(MetricRegistry.name(PREFIX, scope, "term"), () -> ServerContextAccess.term(context));
+    register(MetricRegistry.name(PREFIX, scope, "role"), () -> context.getState().name());
+    register(MetricRegistry.name(PREFIX, scope, "commit-index"), () -> ServerContextAccess.commitIndex(context));
+
+    for( Address member : members ) {
+      if( member.equals(address) ) {
+        continue;
+      }
+      String name = MetricRegistry.name(PREFIX, scope, "members", member.host() + ":" + member.port());
+      register(MetricRegistry.name(name, "match-index"), () -> ServerContextAccess.matchIndex(context, member));
+      register(MetricRegistry.name(name, "lag-entries"), () -> {
+        Long matchIndex = ServerContextAccess.matchIndex(context, member);
+        return matchIndex != null ? Math.max(0, ServerContextAccess.lastIndex(context) - matchIndex) : null;
+      });
+      register(MetricRegistry.name(name, "lag-ms"), () -> {
+        Long heartbeatTime = ServerContextAccess.heartbeatTime(context, member);
+        return heartbeatTime != null ? Math.max(0, System.currentTimeMillis() - heartbeatTime) : null;
+      });
+    }
+  }
+
+  /**
+   * Registers a gauge that reports null when the server changes underneath it, or is closed.
+   */
+  <T> void register(String name, Supplier<T> value) {
+    metrics.register(name, (Gauge<T>) () -> {
+      try {
+        return value.get();
+      } catch( IllegalStateException | ConcurrentModificationException e ) {
+        return null;
+      }
+    });
+  }
+}
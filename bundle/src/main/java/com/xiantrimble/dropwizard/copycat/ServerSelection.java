@@ -0,0 +1,70 @@
+/**
+ * Copyright (C) 2015 Christian Trimble (xiantrimble@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xiantrimble.dropwizard.copycat;
+
+import io.atomix.copycat.client.ServerSelectionStrategies;
+import io.atomix.copycat.client.ServerSelectionStrategy;
+
+/**
+ * The servers a client session prefers to connect to.
+ *
+ * @author Christian Trimble
+ */
+public enum ServerSelection {
+  /**
+   * Connect to any server.
+   */
+  ANY,
+  /**
+   * Connect to the leader when it is known, so commands are not forwarded.
+   */
+  LEADER,
+  /**
+   * Connect to any follower.
+   */
+  FOLLOWERS,
+  /**
+   * Connect to the follower with the lowest observed round trip time, falling back to the leader.
+   * The sessions of a pool are offset by their index, so the nth session prefers the nth fastest
+   * follower.
+   */
+  LEAST_LATENCY;
+
+  /**
+   * Returns the strategy for this selection.  The least latency strategy is only used for
+   * LEAST_LATENCY, and must be recording the round trips of the session's transport.
+   */
+  public ServerSelectionStrategy strategy(LeastLatencyStrategy leastLatency) {
+    return strategy(leastLatency, 0);
+  }
+
+  /**
+   * Returns the strategy for the session at the index of its pool.  Only LEAST_LATENCY uses the
+   * index, offsetting its order of the followers.
+   */
+  public ServerSelectionStrategy strategy(LeastLatencyStrategy leastLatency, int session) {
+    switch (this) {
+      case ANY:
+        return ServerSelectionStrategies.ANY;
+      case LEADER:
+        return ServerSelectionStrategies.LEADER;
+      case FOLLOWERS:
+        return ServerSelectionStrategies.FOLLOWERS;
+      default:
+        return leastLatency.offset(session);
+    }
+  }
+}
@@ -0,0 +1,53 @@
+/**
+ * Copyright (C) 2015 Christian Trimble (xiantrimble@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xiantrimble.dropwizard.copycat;
+
+import io.atomix.catalyst.transport.Client;
+import io.atomix.catalyst.transport.Server;
+import io.atomix.catalyst.transport.Transport;
+
+/**
+ * A transport that can be handed to several Copycat clients and servers.  Clients and servers close
+ * their transport when they shut down, so closing this transport does nothing.  The owner closes the
+ * underlying transport once everything using it has stopped.
+ *
+ * @author Christian Trimble
+ */
+public class SharedTransport implements Transport {
+  private final Transport transport;
+
+  public SharedTransport(Transport transport) {
+    this.transport = transport;
+  }
+
+  public Transport getTransport() {
+    return transport;
+  }
+
+  @Override
+  public Client client() {
+    return transport.client();
+  }
+
+  @Override
+  public Server server() {
+    return transport.server();
+  }
+
+  @Override
+  public void close() {
+  }
+}
@@ -0,0 +1,48 @@
+/**
+ * Copyright (C) 2015 Christian Trimble (xiantrimble@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xiantrimble.dropwizard.copycat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.xiantrimble.jackson.catalyst.ObjectMapperTypeSerializer;
+
+/**
+ * A Catalyst type serializer that writes values in Jackson's binary Smile format.  Shared name and
+ * shared string value back references are enabled, so repeated field names and values in an entry
+ * are only written once.
+ *
+ * Values are framed in the buffer, so they can be followed by other values.
+ *
+ * @author Christian Trimble
+ */
+public class SmileTypeSerializer<T> extends ObjectMapperTypeSerializer<T> {
+
+  public static ObjectMapper createMapper() {
+    SmileFactory factory = new SmileFactory()
+        .configure(SmileGenerator.Feature.CHECK_SHARED_NAMES, true)
+        .configure(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES, true);
+    return new ObjectMapper(factory);
+  }
+
+  public SmileTypeSerializer() {
+    this(createMapper());
+  }
+
+  public SmileTypeSerializer(ObjectMapper mapper) {
+    super(mapper);
+  }
+}
@@ -0,0 +1,55 @@
+/**
+ * Copyright (C) 2015 Christian Trimble (xiantrimble@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xiantrimble.dropwizard.copycat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.atomix.catalyst.serializer.Serializer;
+import io.atomix.catalyst.serializer.TypeSerializer;
+import io.atomix.catalyst.serializer.TypeSerializerFactory;
+
+/**
+ * Creates Smile type serializers that share a single object mapper.
+ *
+ * @author Christian Trimble
+ */
+public class SmileTypeSerializerFactory implements TypeSerializerFactory {
+  private final SmileTypeSerializer<Object> serializer;
+
+  public SmileTypeSerializerFactory() {
+    this(SmileTypeSerializer.createMapper());
+  }
+
+  public SmileTypeSerializerFactory(ObjectMapper mapper) {
+    this.serializer = new SmileTypeSerializer<Object>(mapper);
+  }
+
+  @Override
+  public TypeSerializer<?> createSerializer(Class<?> type) {
+    return serializer;
+  }
+
+  /**
+   * Registers the types with the serializer, so that they and any of their subtypes are written
+   * as Smile.
+   */
+  public Serializer register(Serializer serializer, Class<?>... types) {
+    for (Class<?> type : types) {
+      serializer.registerAbstract(type, this);
+    }
+    return serializer;
+  }
+}
@@ -0,0 +1,104 @@
+/**
+ * Copyright (C) 2015 Christian Trimble (xiantrimble@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xiantrimble.dropwizard.copycat;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import io.atomix.copycat.server.CopycatServer;
+import io.atomix.copycat.server.CopycatServerAccess;
+import io.atomix.copycat.server.Snapshottable;
+import io.atomix.copycat.server.StateMachine;
+import io.atomix.copycat.server.state.ServerContext;
+import io.atomix.copycat.server.state.ServerContextAccess;
+
+/**
+ * Records how the state machine of a server applies commits.  The following metrics are
+ * registered under copycat.state-machine:
+ *
+ * <ul>
+ * <li>&lt;operation class&gt;.apply - a timer of the time taken to apply each operation class,
+ * whose count is the number of commits applied.</li>
+ * <li>last-applied - a gauge of the index of the last entry applied.</li>
+ * <li>backlog - a gauge of the committed entries not yet applied.</li>
+ * <li>snapshot and install - timers of writing and installing snapshots of snapshottable state
+ * machines.</li>
+ * </ul>
+ *
+ * @author Christian Trimble
+ */
+public class StateMachineMetrics {
+  public static final String PREFIX = "copycat.state-machine";
+
+  private final MetricRegistry metrics;
+  private final Map<Class<?>, Timer> applies = new ConcurrentHashMap<>();
+  private final Timer snapshot;
+  private final Timer install;
+
+  public StateMachineMetrics(MetricRegistry metrics) {
+    this.metrics = metrics;
+    this.snapshot = metrics.timer(MetricRegistry.name(PREFIX, "snapshot"));
+    this.install = metrics.timer(MetricRegistry.name(PREFIX, "install"));
+  }
+
+  /**
+   * Returns a supplier of state machines that time the operations they register.  Snapshottable
+   * state machines stay snapshottable.
+   */
+  public Supplier<StateMachine> instrument(Supplier<StateMachine> supplier) {
+    return () -> {
+      StateMachine stateMachine = supplier.get();
+      return stateMachine instanceof Snapshottable
+          ? new InstrumentedStateMachine.Snapshotting(stateMachine, this)
+          : new InstrumentedStateMachine(stateMachine, this);
+    };
+  }
+
+  /**
+   * Registers the last applied and backlog gauges of the server.
+   */
+  public void register(CopycatServer server) {
+    register(server, null);
+  }
+
+  /**
+   * Registers the last applied and backlog gauges of the server under the scope, such as the
+   * server's partition.  The timers are shared by every server registered.
+   */
+  public void register(CopycatServer server, String scope) {
+    ServerContext context = CopycatServerAccess.context(server);
+    metrics.register(MetricRegistry.name(PREFIX, scope, "last-applied"), (Gauge<Long>) () -> ServerContextAccess.lastApplied(context));
+    metrics.register(MetricRegistry.name(PREFIX, scope, "backlog"),
+        (Gauge<Long>) () -> Math.max(0, ServerContextAccess.commitIndex(context) - ServerContextAccess.lastApplied(context)));
+  }
+
+  Timer apply(Class<?> type) {
+    return applies.computeIfAbsent(type, t -> metrics.timer(MetricRegistry.name(PREFIX, t.getName(), "apply")));
+  }
+
+  Timer snapshot() {
+    return snapshot;
+  }
+
+  Timer install() {
+    return install;
+  }
+}
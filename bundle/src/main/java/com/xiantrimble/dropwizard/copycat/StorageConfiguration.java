@@ -0,0 +1,177 @@
+/**
+ * Copyright (C) 2015 Christian Trimble (xiantrimble@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xiantrimble.dropwizard.copycat;
+
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+import io.atomix.copycat.server.storage.StorageLevel;
+import io.dropwizard.util.Duration;
+import io.dropwizard.util.Size;
+import io.dropwizard.validation.MaxSize;
+import io.dropwizard.validation.MinDuration;
+import io.dropwizard.validation.MinSize;
+
+/**
+ * Configuration for the Copycat log.  The defaults match the defaults of Copycat's storage builder.
+ * 
+ * <pre>
+ * storage:
+ *   level: MAPPED
+ *   maxSegmentSize: 32MB
+ *   maxEntriesPerSegment: 1048576
+ *   entryBufferSize: 1024
+ *   flushOnCommit: false
+ *   retainStaleSnapshots: false
+ *   compactionThreads: 2
+ *   minorCompactionInterval: 1 minute
+ *   majorCompactionInterval: 1 hour
+ *   compactionThreshold: 0.5
+ *   timedCompaction: false
+ * </pre>
+ *
+ * @author Christian Trimble
+ */
+public class StorageConfiguration {
+  @NotNull
+  protected StorageLevel level = StorageLevel.DISK;
+  @NotNull
+  @MinSize(65)
+  @MaxSize(Integer.MAX_VALUE)
+  protected Size maxSegmentSize = Size.megabytes(32);
+  @Min(1)
+  @Max(1024 * 1024)
+  protected int maxEntriesPerSegment = 1024 * 1024;
+  @Min(1)
+  protected int entryBufferSize = 1024;
+  protected boolean flushOnCommit = false;
+  protected boolean retainStaleSnapshots = false;
+  @Min(1)
+  protected Integer compactionThreads;
+  @NotNull
+  @MinDuration(1)
+  protected Duration minorCompactionInterval = Duration.minutes(1);
+  @NotNull
+  @MinDuration(1)
+  protected Duration majorCompactionInterval = Duration.hours(1);
+  @DecimalMin(value = "0", inclusive = false)
+  @DecimalMax("1")
+  protected double compactionThreshold = 0.5;
+  protected boolean timedCompaction = false;
+
+  public StorageLevel getLevel() {
+    return level;
+  }
+
+  public void setLevel(StorageLevel level) {
+    this.level = level;
+  }
+
+  public Size getMaxSegmentSize() {
+    return maxSegmentSize;
+  }
+
+  public void setMaxSegmentSize(Size maxSegmentSize) {
+    this.maxSegmentSize = maxSegmentSize;
+  }
+
+  public int getMaxEntriesPerSegment() {
+    return maxEntriesPerSegment;
+  }
+
+  public void setMaxEntriesPerSegment(int maxEntriesPerSegment) {
+    this.maxEntriesPerSegment = maxEntriesPerSegment;
+  }
+
+  public int getEntryBufferSize() {
+    return entryBufferSize;
+  }
+
+  public void setEntryBufferSize(int entryBufferSize) {
+    this.entryBufferSize = entryBufferSize;
+  }
+
+  /**
+   * When false, appended entries are flushed when segments fill and roll, so many commits share a
+   * single flush.
+   */
+  public boolean isFlushOnCommit() {
+    return flushOnCommit;
+  }
+
+  public void setFlushOnCommit(boolean flushOnCommit) {
+    this.flushOnCommit = flushOnCommit;
+  }
+
+  public boolean isRetainStaleSnapshots() {
+    return retainStaleSnapshots;
+  }
+
+  public void setRetainStaleSnapshots(boolean retainStaleSnapshots) {
+    this.retainStaleSnapshots = retainStaleSnapshots;
+  }
+
+  /**
+   * The number of compaction threads, or null to use half of the available processors.
+   */
+  public Integer getCompactionThreads() {
+    return compactionThreads;
+  }
+
+  public void setCompactionThreads(Integer compactionThreads) {
+    this.compactionThreads = compactionThreads;
+  }
+
+  public Duration getMinorCompactionInterval() {
+    return minorCompactionInterval;
+  }
+
+  public void setMinorCompactionInterval(Duration minorCompactionInterval) {
+    this.minorCompactionInterval = minorCompactionInterval;
+  }
+
+  public Duration getMajorCompactionInterval() {
+    return majorCompactionInterval;
+  }
+
+  public void setMajorCompactionInterval(Duration majorCompactionInterval) {
+    this.majorCompactionInterval = majorCompactionInterval;
+  }
+
+  public double getCompactionThreshold() {
+    return compactionThreshold;
+  }
+
+  public void setCompactionThreshold(double compactionThreshold) {
+    this.compactionThreshold = compactionThreshold;
+  }
+
+  /**
+   * When true and storage metrics are registered, the metrics run the minor and major compactions
+   * on their intervals, timing them, and Copycat's compactor is left unscheduled.  When false,
+   * Copycat schedules its own compactions, which are not timed.
+   */
+  public boolean isTimedCompaction() {
+    return timedCompaction;
+  }
+
+  public void setTimedCompaction(boolean timedCompaction) {
+    this.timedCompaction = timedCompaction;
+  }
+}
@@ -0,0 +1,302 @@
+/**
+ * Copyright (C) 2015 Christian Trimble (xiantrimble@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xiantrimble.dropwizard.copycat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.CachedGauge;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import io.atomix.copycat.server.CopycatServer;
+import io.atomix.copycat.server.CopycatServerAccess;
+import io.atomix.copycat.server.state.ServerContext;
+import io.atomix.copycat.server.storage.Log;
+import io.atomix.copycat.server.storage.StorageLevel;
+import io.atomix.copycat.server.storage.compaction.Compaction;
+
+/**
+ * Reports how the log of a server uses its disk.  The following metrics are registered under
+ * copycat.storage:
+ *
+ * <ul>
+ * <li>segments - a gauge of the number of segment files in the log directory.</li>
+ * <li>disk-bytes - a gauge of the bytes of all the files in the log directory.</li>
+ * <li>mapped-bytes - a gauge of the bytes of the segments mapped into memory, which is zero unless
+ * the storage level is MAPPED.</li>
+ * <li>snapshot-bytes - a gauge of the bytes of the newest snapshot.</li>
+ * <li>fsync - a timer of writing and forcing a small probe file in the log directory.</li>
+ * <li>compaction.minor and compaction.major - timers of each compaction, when timed compaction is
+ * configured.</li>
+ * <li>compaction.reclaimed-bytes - a histogram of the bytes each compaction removed from the
+ * compacted segments, when timed compaction is configured.</li>
+ * </ul>
+ *
+ * Copycat's compactor cannot report its compactions.  When the storage configuration enables
+ * timed compaction, the compactions of servers registered here are run by these metrics, on the
+ * intervals in the storage configuration, and storage built for them should use
+ * {@link #UNSCHEDULED} for its compaction intervals, so the compactor does not run them again.
+ * Otherwise the compactor keeps its own schedule and compactions are not measured.  Copycat
+ * flushes its segments internally, so the fsync timer probes the disk under the log rather than
+ * timing the log's own flushes.
+ *
+ * Compaction never rewrites the segment being appended to, so the reclaimed bytes are measured
+ * over the segments before it, and entries appended during a compaction are not counted against
+ * it.
+ *
+ * The gauges scan the log directory at most once a second.
+ *
+ * @author Christian Trimble
+ */
+public class StorageMetrics implements AutoCloseable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(StorageMetrics.class);
+
+  public static final String PREFIX = "copycat.storage";
+  /**
+   * A compaction interval long enough that Copycat's compactor never runs it.
+   */
+  public static final java.time.Duration UNSCHEDULED = java.time.Duration.ofDays(365 * 100);
+  public static final String PROBE_FILE = "fsync.probe";
+  static final long SCAN_INTERVAL_MS = 1000;
+  static final long PROBE_INTERVAL_MS = 10000;
+  static final int PROBE_SIZE = 4096;
+
+  /**
+   * The files of a log directory.
+   */
+  public static class Usage {
+    private final int segments;
+    private final long segmentBytes;
+    private final long diskBytes;
+    private final long snapshotBytes;
+
+    Usage(int segments, long segmentBytes, long diskBytes, long snapshotBytes) {
+      this.segments = segments;
+      this.segmentBytes = segmentBytes;
+      this.diskBytes = diskBytes;
+      this.snapshotBytes = snapshotBytes;
+    }
+
+    public int getSegments() {
+      return segments;
+    }
+
+    public long getSegmentBytes() {
+      return segmentBytes;
+    }
+
+    public long getDiskBytes() {
+      return diskBytes;
+    }
+
+    public long getSnapshotBytes() {
+      return snapshotBytes;
+    }
+  }
+
+  private final MetricRegistry metrics;
+  private final Timer fsync;
+  private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "copycat-storage-metrics");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  public StorageMetrics(MetricRegistry metrics) {
+    this.metrics = metrics;
+    this.fsync = metrics.timer(MetricRegistry.name(PREFIX, "fsync"));
+  }
+
+  /**
+   * Registers the gauges of the server's log directory, and starts probing its disk and, when
+   * timed compaction is configured, running its compactions.
+   */
+  public void register(CopycatServer server, File directory, StorageConfiguration storage) {
+    register(server, directory, storage, null);
+  }
+
+  /**
+   * Registers the gauges of the server's log directory under the scope, such as the server's
+   * partition, and starts probing its disk and, when timed compaction is configured, running its
+   * compactions.  The timers are shared by every server registered.
+   */
+  public void register(CopycatServer server, File directory, StorageConfiguration storage, String scope) {
+    CachedGauge<Usage> usage = new CachedGauge<Usage>(SCAN_INTERVAL_MS, TimeUnit.MILLISECONDS) {
+      @Override
+      protected Usage loadValue() {
+        return scan(directory);
+      }
+    };
+    metrics.register(MetricRegistry.name(PREFIX, scope, "segments"), (Gauge<Integer>) () -> usage.getValue().getSegments());
+    metrics.register(MetricRegistry.name(PREFIX, scope, "disk-bytes"), (Gauge<Long>) () -> usage.getValue().getDiskBytes());
+    metrics.register(MetricRegistry.name(PREFIX, scope, "mapped-bytes"),
+        (Gauge<Long>) () -> storage.getLevel() == StorageLevel.MAPPED ? usage.getValue().getSegmentBytes() : 0L);
+    metrics.register(MetricRegistry.name(PREFIX, scope, "snapshot-bytes"), (Gauge<Long>) () -> usage.getValue().getSnapshotBytes());
+
+    if( storage.isTimedCompaction() ) {
+      ServerContext context = CopycatServerAccess.context(server);
+      schedule(() -> compact(context.getLog(), Compaction.MINOR, directory), storage.getMinorCompactionInterval().toMilliseconds());
+      schedule(() -> compact(context.getLog(), Compaction.MAJOR, directory), storage.getMajorCompactionInterval().toMilliseconds());
+    }
+    if( storage.getLevel() != StorageLevel.MEMORY ) {
+      schedule(() -> probe(directory), PROBE_INTERVAL_MS);
+    }
+  }
+
+  /**
+   * Runs a compaction of the log, recording its duration and the bytes it removed from the
+   * segments before the one being appended to.  Nothing is run if the log is not open.
+   */
+  CompletableFuture<Void> compact(Log log, Compaction compaction, File directory) {
+    if( log == null || !log.isOpen() ) {
+      return CompletableFuture.completedFuture(null);
+    }
+    long active = activeSegment(directory);
+    long before = segmentBytes(directory, active);
+    Timer.Context time = metrics.timer(MetricRegistry.name(PREFIX, "compaction", compaction == Compaction.MAJOR ? "major" : "minor")).time();
+    return log.compactor().compact(compaction).whenComplete((result, error) -> {
+      time.stop();
+      if( error == null ) {
+        metrics.histogram(MetricRegistry.name(PREFIX, "compaction", "reclaimed-bytes"))
+            .update(Math.max(0, before - segmentBytes(directory, active)));
+      }
+    });
+  }
+
+  /**
+   * Returns the id of the newest segment in the directory, which is the one being appended to.
+   */
+  static long activeSegment(File directory) {
+    long active = -1;
+    File[] files = directory.listFiles();
+    if( files != null ) {
+      for( File file : files ) {
+        active = Math.max(active, segmentId(file.getName()));
+      }
+    }
+    return active;
+  }
+
+  /**
+   * Returns the bytes of the segments in the directory with ids before the given id.
+   */
+  static long segmentBytes(File directory, long before) {
+    long bytes = 0;
+    File[] files = directory.listFiles();
+    if( files != null ) {
+      for( File file : files ) {
+        long id = segmentId(file.getName());
+        if( id >= 0 && id < before ) {
+          bytes += file.length();
+        }
+      }
+    }
+    return bytes;
+  }
+
+  /**
+   * Returns the id of a segment file, named &lt;log&gt;-&lt;id&gt;-&lt;version&gt;.log, or -1 if
+   * the file is not a segment.
+   */
+  static long segmentId(String name) {
+    if( !name.endsWith(".log") ) {
+      return -1;
+    }
+    int version = name.lastIndexOf('-');
+    int id = version > 0 ? name.lastIndexOf('-', version - 1) : -1;
+    if( id < 0 ) {
+      return -1;
+    }
+    try {
+      return Long.parseLong(name.substring(id + 1, version));
+    } catch( NumberFormatException e ) {
+      return -1;
+    }
+  }
+
+  /**
+   * Writes and forces a small file in the directory, recording the time taken.
+   */
+  void probe(File directory) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(PROBE_SIZE);
+    try( FileChannel channel = FileChannel.open(new File(directory, PROBE_FILE).toPath(),
+        StandardOpenOption.CREATE, StandardOpenOption.WRITE) ) {
+      Timer.Context time = fsync.time();
+      while( buffer.hasRemaining() ) {
+        channel.write(buffer, buffer.position());
+      }
+      channel.force(false);
+      time.stop();
+    }
+  }
+
+  /**
+   * Scans the files of a log directory.
+   */
+  public static Usage scan(File directory) {
+    int segments = 0;
+    long segmentBytes = 0;
+    long diskBytes = 0;
+    long snapshotBytes = 0;
+    long snapshotModified = Long.MIN_VALUE;
+    File[] files = directory.listFiles();
+    if( files != null ) {
+      for( File file : files ) {
+        long length = file.length();
+        diskBytes += length;
+        if( file.getName().endsWith(".log") ) {
+          segments++;
+          segmentBytes += length;
+        } else if( file.getName().endsWith(".snapshot") && file.lastModified() >= snapshotModified ) {
+          snapshotModified = file.lastModified();
+          snapshotBytes = length;
+        }
+      }
+    }
+    return new Usage(segments, segmentBytes, diskBytes, snapshotBytes);
+  }
+
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
+
+  interface Task {
+    void run() throws Exception;
+  }
+
+  private void schedule(Task task, long intervalMs) {
+    executor.scheduleAtFixedRate(() -> {
+      try {
+        task.run();
+      } catch( Exception e ) {
+        LOGGER.warn("storage metrics task failed", e);
+      }
+    }, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+  }
+}
@@ -0,0 +1,203 @@
+/**
+ * Copyright (C) 2015 Christian Trimble (xiantrimble@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xiantrimble.dropwizard.copycat;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+import io.atomix.catalyst.transport.Transport;
+import io.atomix.catalyst.transport.netty.NettyTransport;
+import io.dropwizard.util.Duration;
+import io.dropwizard.util.Size;
+import io.dropwizard.validation.MaxDuration;
+import io.dropwizard.validation.MaxSize;
+import io.dropwizard.validation.MinDuration;
+import io.dropwizard.validation.MinSize;
+
+/**
+ * Configuration for the Netty transport shared by the Copycat client and server on a node.  The
+ * defaults match the defaults of Catalyst's Netty transport.
+ *
+ * <pre>
+ * transport:
+ *   threads: 4
+ *   tcpNoDelay: true
+ *   sendBufferSize: 256KB
+ *   receiveBufferSize: 256KB
+ *   connectTimeout: 5 seconds
+ *   shortCircuitLocal: true
+ * </pre>
+ *
+ * @author Christian Trimble
+ */
+public class TransportConfiguration {
+  @Min(1)
+  protected Integer threads;
+  protected boolean tcpNoDelay = false;
+  protected boolean tcpKeepAlive = true;
+  protected boolean reuseAddress = true;
+  @MinSize(1)
+  @MaxSize(Integer.MAX_VALUE)
+  protected Size sendBufferSize;
+  @MinSize(1)
+  @MaxSize(Integer.MAX_VALUE)
+  protected Size receiveBufferSize;
+  @NotNull
+  @MinSize(1)
+  @MaxSize(Integer.MAX_VALUE)
+  protected Size maxFrameSize = Size.megabytes(64);
+  @Min(1)
+  protected int acceptBacklog = 1024;
+  @NotNull
+  @MinDuration(value = 1, unit = TimeUnit.MILLISECONDS)
+  @MaxDuration(value = Integer.MAX_VALUE, unit = TimeUnit.MILLISECONDS)
+  protected Duration connectTimeout = Duration.seconds(5);
+  @NotNull
+  @MinDuration(value = 1, unit = TimeUnit.MILLISECONDS)
+  @MaxDuration(value = Integer.MAX_VALUE, unit = TimeUnit.MILLISECONDS)
+  protected Duration requestTimeout = Duration.milliseconds(500);
+  protected boolean shortCircuitLocal = true;
+
+  /**
+   * The number of event loop threads, or null to use one per available processor.
+   */
+  public Integer getThreads() {
+    return threads;
+  }
+
+  public void setThreads(Integer threads) {
+    this.threads = threads;
+  }
+
+  public boolean isTcpNoDelay() {
+    return tcpNoDelay;
+  }
+
+  public void setTcpNoDelay(boolean tcpNoDelay) {
+    this.tcpNoDelay = tcpNoDelay;
+  }
+
+  public boolean isTcpKeepAlive() {
+    return tcpKeepAlive;
+  }
+
+  public void setTcpKeepAlive(boolean tcpKeepAlive) {
+    this.tcpKeepAlive = tcpKeepAlive;
+  }
+
+  public boolean isReuseAddress() {
+    return reuseAddress;
+  }
+
+  public void setReuseAddress(boolean reuseAddress) {
+    this.reuseAddress = reuseAddress;
+  }
+
+  /**
+   * The socket send buffer size, or null to use the operating system default.
+   */
+  public Size getSendBufferSize() {
+    return sendBufferSize;
+  }
+
+  public void setSendBufferSize(Size sendBufferSize) {
+    this.sendBufferSize = sendBufferSize;
+  }
+
+  /**
+   * The socket receive buffer size, or null to use the operating system default.
+   */
+  public Size getReceiveBufferSize() {
+    return receiveBufferSize;
+  }
+
+  public void setReceiveBufferSize(Size receiveBufferSize) {
+    this.receiveBufferSize = receiveBufferSize;
+  }
+
+  public Size getMaxFrameSize() {
+    return maxFrameSize;
+  }
+
+  public void setMaxFrameSize(Size maxFrameSize) {
+    this.maxFrameSize = maxFrameSize;
+  }
+
+  public int getAcceptBacklog() {
+    return acceptBacklog;
+  }
+
+  public void setAcceptBacklog(int acceptBacklog) {
+    this.acceptBacklog = acceptBacklog;
+  }
+
+  public Duration getConnectTimeout() {
+    return connectTimeout;
+  }
+
+  public void setConnectTimeout(Duration connectTimeout) {
+    this.connectTimeout = connectTimeout;
+  }
+
+  public Duration getRequestTimeout() {
+    return requestTimeout;
+  }
+
+  public void setRequestTimeout(Duration requestTimeout) {
+    this.requestTimeout = requestTimeout;
+  }
+
+  /**
+   * When true, clients on a node reach the node's own server in memory instead of over Netty.
+   */
+  public boolean isShortCircuitLocal() {
+    return shortCircuitLocal;
+  }
+
+  public void setShortCircuitLocal(boolean shortCircuitLocal) {
+    this.shortCircuitLocal = shortCircuitLocal;
+  }
+
+  /**
+   * Builds a Netty transport with these settings, wrapped in a hybrid transport when local
+   * connections are short circuited.
+   */
+  public Transport build() {
+    NettyTransport.Builder builder = NettyTransport.builder()
+        .withTcpNoDelay(tcpNoDelay)
+        .withTcpKeepAlive(tcpKeepAlive)
+        .withReuseAddress(reuseAddress)
+        .withMaxFrameSize((int) maxFrameSize.toBytes())
+        .withAcceptBacklog(acceptBacklog)
+        .withConnectTimeout((int) connectTimeout.toMilliseconds())
+        .withRequestTimeout((int) requestTimeout.toMilliseconds());
+
+    if( threads != null ) {
+      builder.withThreads(threads);
+    }
+    if( sendBufferSize != null ) {
+      builder.withSendBufferSize((int) sendBufferSize.toBytes());
+    }
+    if( receiveBufferSize != null ) {
+      builder.withReceiveBufferSize((int) receiveBufferSize.toBytes());
+    }
+
+    Transport transport = builder.build();
+    return shortCircuitLocal ? new HybridTransport(transport) : transport;
+  }
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright (C) 2015 Christian Trimble (xiantrimble@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xiantrimble.dropwizard.copycat;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.atomix.copycat.Command;
+import io.atomix.copycat.client.CopycatClient;
+
+/**
+ * Keeps a bounded window of commands in flight on a client session.  Submitting blocks while the
+ * window is full, so a producer that reads faster than the cluster can replicate is held back,
+ * instead of queueing commands without bound.  Commands keep the order of the session.
+ *
+ * The first failed command fails every later submit and flush, so a load stops at its first
+ * failure.  Submit and flush block, so they must not be called on a Copycat thread.
+ *
+ * @author Christian Trimble
+ */
+public class WindowedSubmitter {
+  private final CopycatClient client;
+  private final int window;
+  private final Semaphore permits;
+  private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+  public WindowedSubmitter(CopycatClient client, int window) {
+    if( window < 1 ) {
+      throw new IllegalArgumentException("window must be positive.");
+    }
+    this.client = client;
+    this.window = window;
+    this.permits = new Semaphore(window);
+  }
+
+  public int getWindow() {
+    return window;
+  }
+
+  /**
+   * Returns the number of commands in flight.
+   */
+  public int outstanding() {
+    return window - permits.availablePermits();
+  }
+
+  /**
+   * Submits a command, after waiting for room in the window.
+   *
+   * @throws CompletionException if an earlier command failed.
+   */
+  public <T> CompletableFuture<T> submit(Command<T> command) throws InterruptedException {
+    checkFailure();
+    permits.acquire();
+    CompletableFuture<T> result;
+    try {
+      result = client.submit(command);
+    } catch( RuntimeException e ) {
+      permits.release();
+      throw e;
+    }
+    return result.whenComplete((value, error) -> {
+      if( error != null ) {
+        failure.compareAndSet(null, error);
+      }
+      permits.release();
+    });
+  }
+
+  /**
+   * Waits for the commands in flight to complete.
+   *
+   * @throws CompletionException if any command failed.
+   */
+  public void flush() throws InterruptedException {
+    permits.acquire(window);
+    permits.release(window);
+    checkFailure();
+  }
+
+  private void checkFailure() {
+    Throwable error = failure.get();
+    if( error != null ) {
+      throw error instanceof CompletionException ? (CompletionException) error : new CompletionException(error);
+    }
+  }
+}
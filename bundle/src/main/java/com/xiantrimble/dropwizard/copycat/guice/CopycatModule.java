@@ -16,15 +16,22 @@
 package com.xiantrimble.dropwizard.copycat.guice;
 
 import com.xiantrimble.dropwizard.copycat.CopycatBundle;
+import com.xiantrimble.dropwizard.copycat.CopycatClientPool;
+import com.xiantrimble.dropwizard.copycat.CopycatConfiguration;
+import com.xiantrimble.dropwizard.copycat.CopycatPartitions;
+import com.xiantrimble.dropwizard.copycat.HedgedQueries;
 
 import java.util.function.Supplier;
 
 import javax.inject.Singleton;
 
-import com.google.inject.AbstractModule;
+import com.google.inject.Binder;
+import com.google.inject.Key;
 import com.google.inject.PrivateModule;
+import com.google.inject.Provider;
 import com.google.inject.Provides;
 import com.google.inject.TypeLiteral;
+import com.google.inject.multibindings.MapBinder;
 
 import io.dropwizard.Configuration;
 import io.atomix.copycat.client.CopycatClient;
@@ -39,22 +46,47 @@ public class CopycatModule extends PrivateModule {
     this.bundle = bundle;
   }
 
+  /**
+   * Returns the binder of the state machines hosted by a multiplexed state machine, by namespace.
+   * Modules add their state machines with addBinding, and a MultiplexedStateMachineModule hosts
+   * them on the server.
+   */
+  public static MapBinder<String, Supplier<StateMachine>> namespaces(Binder binder) {
+    return MapBinder.newMapBinder(binder, new TypeLiteral<String>(){}, new TypeLiteral<Supplier<StateMachine>>(){});
+  }
+
+  /**
+   * When the bundle hosts an injected state machine, hands it the provider of the bound
+   * Supplier&lt;StateMachine&gt;, which it resolves when its servers start.
+   */
   @Override
   protected void configure() {
+	  if( bundle.isInjectedStateMachine() ) {
+		  Provider<Supplier<StateMachine>> stateMachineProvider = getProvider(new Key<Supplier<StateMachine>>(){});
+		  bundle.setStateMachineProvider(stateMachineProvider::get);
+	  }
 	  expose(new TypeLiteral<Supplier<CopycatServer>>(){});
 	  expose(CopycatClient.class);
+	  expose(CopycatClientPool.class);
+	  expose(CopycatPartitions.class);
+	  expose(HedgedQueries.class);
+	  expose(CopycatConfiguration.class);
   }
   
   @Provides
   @Singleton
-  public CopycatServer server(Supplier<StateMachine> stateMachineSupplier) {
-	  return bundle.createServer(stateMachineSupplier);
+  public CopycatConfiguration configuration() {
+	  return bundle.getConfiguration();
   }
   
+  /**
+   * Returns the bundle's server of the first partition, which is built when the servers start
+   * if the state machine is injected.
+   */
   @Provides
   @Singleton
-  public Supplier<CopycatServer> server(CopycatServer server) {
-	  return ()->server;
+  public Supplier<CopycatServer> server() {
+	  return bundle::getServer;
   }
   
   @Provides
@@ -62,5 +94,23 @@ public class CopycatModule extends PrivateModule {
   public CopycatClient client() {
 	  return bundle.getClient();
   }
+  
+  @Provides
+  @Singleton
+  public CopycatClientPool clientPool() {
+	  return bundle.getClientPool();
+  }
+
+  @Provides
+  @Singleton
+  public CopycatPartitions partitions() {
+	  return bundle.getPartitions();
+  }
+
+  @Provides
+  @Singleton
+  public HedgedQueries hedgedQueries() {
+	  return bundle.getHedgedQueries();
+  }
 
 }
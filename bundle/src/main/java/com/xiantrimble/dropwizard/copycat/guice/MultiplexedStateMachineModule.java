@@ -0,0 +1,48 @@
+/**
+ * Copyright (C) 2015 Christian Trimble (xiantrimble@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xiantrimble.dropwizard.copycat.guice;
+
+import com.xiantrimble.dropwizard.copycat.MultiplexedStateMachine;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+import javax.inject.Singleton;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Provides;
+
+import io.atomix.copycat.server.StateMachine;
+
+/**
+ * Provides the server's state machine as a multiplexed state machine, which hosts the state
+ * machines bound with {@link CopycatModule#namespaces(com.google.inject.Binder)}.
+ *
+ * @author Christian Trimble
+ */
+public class MultiplexedStateMachineModule extends AbstractModule {
+
+  @Override
+  protected void configure() {
+	  CopycatModule.namespaces(binder());
+  }
+
+  @Provides
+  @Singleton
+  public Supplier<StateMachine> stateMachineSupplier(Map<String, Supplier<StateMachine>> namespaces) {
+	  return MultiplexedStateMachine.supplier(namespaces);
+  }
+}
@@ -0,0 +1,33 @@
+/**
+ * Copyright (C) 2015 Christian Trimble (xiantrimble@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server;
+
+import io.atomix.copycat.server.state.ServerContext;
+
+/**
+ * Reads the context of a Copycat server, which Copycat keeps protected.  This class lives in
+ * Copycat's package for that access, and should only be used for monitoring.
+ *
+ * @author Christian Trimble
+ */
+public final class CopycatServerAccess {
+  private CopycatServerAccess() {
+  }
+
+  public static ServerContext context(CopycatServer server) {
+    return server.context;
+  }
+}
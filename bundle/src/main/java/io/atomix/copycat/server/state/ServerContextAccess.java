@@ -0,0 +1,86 @@
+/**
+ * Copyright (C) 2015 Christian Trimble (xiantrimble@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server.state;
+
+import java.util.ArrayList;
+
+import io.atomix.catalyst.transport.Address;
+import io.atomix.copycat.server.CopycatServer;
+
+/**
+ * Reads the package private state of a server context.  This class lives in Copycat's package for
+ * that access, and should only be used for monitoring.
+ *
+ * @author Christian Trimble
+ */
+public final class ServerContextAccess {
+  private ServerContextAccess() {
+  }
+
+  public static long commitIndex(ServerContext context) {
+    return context.getCommitIndex();
+  }
+
+  /**
+   * Returns the index of the last entry applied to the state machine, or 0 before the state machine
+   * is created.
+   */
+  public static long lastApplied(ServerContext context) {
+    ServerStateMachine stateMachine = context.getStateMachine();
+    return stateMachine != null ? stateMachine.getLastApplied() : 0;
+  }
+
+  public static long term(ServerContext context) {
+    return context.getTerm();
+  }
+
+  /**
+   * Returns the index of the last entry in the server's log.
+   */
+  public static long lastIndex(ServerContext context) {
+    return context.getLog().lastIndex();
+  }
+
+  /**
+   * Returns the index of the last entry the leader knows the member has, or null if this server
+   * is not the leader or does not know the member.
+   */
+  public static Long matchIndex(ServerContext context, Address serverAddress) {
+    MemberState member = member(context, serverAddress);
+    return member != null ? member.getMatchIndex() : null;
+  }
+
+  /**
+   * Returns the time in milliseconds when the leader last heard back from the member, or null if
+   * this server is not the leader, does not know the member or has not heard from it.
+   */
+  public static Long heartbeatTime(ServerContext context, Address serverAddress) {
+    MemberState member = member(context, serverAddress);
+    return member != null && member.getHeartbeatTime() > 0 ? member.getHeartbeatTime() : null;
+  }
+
+  static MemberState member(ServerContext context, Address serverAddress) {
+    if( context.getState() != CopycatServer.State.LEADER ) {
+      return null;
+    }
+    for( MemberState member : new ArrayList<>(context.getClusterState().getRemoteMemberStates()) ) {
+      if( member.getMember().serverAddress().equals(serverAddress) ) {
+        return member;
+      }
+    }
+    return null;
+  }
+}
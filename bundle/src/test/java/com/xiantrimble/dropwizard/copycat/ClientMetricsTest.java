@@ -0,0 +1,85 @@
+package com.xiantrimble.dropwizard.copycat;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+import io.atomix.copycat.Query;
+import io.atomix.copycat.client.CopycatClient;
+
+/**
+ * Tests for recording client operations and sessions.
+ *
+ * @author Christian Trimble
+ */
+public class ClientMetricsTest {
+  public @Rule CopycatClusterRule<MapMachine.TestStateMachine> clusterRule = CopycatClusterRule.<MapMachine.TestStateMachine>builder()
+      .withStateMachineSupplier(MapMachine.TestStateMachine::new)
+      .build();
+
+  MetricRegistry metrics = new MetricRegistry();
+  ClientMetrics clientMetrics = new ClientMetrics(metrics);
+
+  @Test
+  public void timesOperationsByClass() throws Throwable {
+    CopycatClient client = clientMetrics.instrument(clusterRule.createClient());
+
+    client.submit(new MapMachine.TestPut("key", "value")).get(10, TimeUnit.SECONDS);
+    client.submit(new MapMachine.TestPut("key", "other")).get(10, TimeUnit.SECONDS);
+    client.submit(new MapMachine.TestGet("key", Query.ConsistencyLevel.LINEARIZABLE)).get(10, TimeUnit.SECONDS);
+
+    assertThat(metrics.timer(name(MapMachine.TestPut.class, "latency")).getCount(), equalTo(2L));
+    assertThat(metrics.timer(name(MapMachine.TestGet.class, "latency")).getCount(), equalTo(1L));
+    assertThat(metrics.counter(MetricRegistry.name(ClientMetrics.PREFIX, "in-flight")).getCount(), equalTo(0L));
+  }
+
+  @Test
+  public void countsConnectedSessions() throws Throwable {
+    clientMetrics.instrument(clusterRule.createClient());
+    clientMetrics.instrument(clusterRule.createClient());
+
+    assertThat(metrics.getGauges().get(MetricRegistry.name(ClientMetrics.PREFIX, "sessions", "connected")).getValue(), equalTo(2L));
+    assertThat(metrics.getGauges().get(MetricRegistry.name(ClientMetrics.PREFIX, "sessions", "suspended")).getValue(), equalTo(0L));
+  }
+
+  @Test
+  public void marksFailures() throws Throwable {
+    CopycatClient client = clientMetrics.instrument(failingClient());
+
+    CompletableFuture<String> result = client.submit(new MapMachine.TestPut("key", "value"));
+
+    assertThat(result.isCompletedExceptionally(), equalTo(true));
+    assertThat(metrics.meter(name(MapMachine.TestPut.class, "failures")).getCount(), equalTo(1L));
+    assertThat(metrics.counter(MetricRegistry.name(ClientMetrics.PREFIX, "in-flight")).getCount(), equalTo(0L));
+  }
+
+  static String name(Class<?> type, String metric) {
+    return MetricRegistry.name(ClientMetrics.PREFIX, type.getName(), metric);
+  }
+
+  static CopycatClient failingClient() {
+    return (CopycatClient) Proxy.newProxyInstance(CopycatClient.class.getClassLoader(), new Class<?>[] { CopycatClient.class },
+        (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "submit":
+              CompletableFuture<Object> failed = new CompletableFuture<>();
+              failed.completeExceptionally(new IllegalStateException("failed"));
+              return failed;
+            case "state":
+              return CopycatClient.State.CONNECTED;
+            case "onStateChange":
+              return null;
+            default:
+              throw new UnsupportedOperationException(method.getName());
+          }
+        });
+  }
+}
@@ -0,0 +1,128 @@
+package com.xiantrimble.dropwizard.copycat;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.fail;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import io.atomix.copycat.Query;
+import io.atomix.copycat.client.CopycatClient;
+
+/**
+ * Tests for batching commands.
+ *
+ * @author Christian Trimble
+ */
+public class CommandBatcherTest {
+  public @Rule CopycatClusterRule<MapMachine.TestStateMachine> clusterRule = CopycatClusterRule.<MapMachine.TestStateMachine>builder()
+      .withStateMachineSupplier(MapMachine.TestStateMachine::new)
+      .build();
+
+  @Test
+  public void batchesCommandsInWindow() throws Throwable {
+    CopycatClient client = clusterRule.createClient();
+    AtomicInteger batches = new AtomicInteger();
+    try (CommandBatcher<MapMachine.TestPut, String> batcher = CommandBatcher.<MapMachine.TestPut, String>builder()
+        .withClient(client)
+        .withBatch(puts -> {
+          batches.incrementAndGet();
+          return new MapMachine.TestPutAll(puts);
+        })
+        .withWindow(Duration.ofMillis(200))
+        .build()) {
+
+      List<CompletableFuture<String>> futures = new ArrayList<>();
+      for (int i = 0; i < 10; i++) {
+        futures.add(batcher.submit(new MapMachine.TestPut("key", "value" + i)));
+      }
+
+      assertThat(futures.get(0).get(10, TimeUnit.SECONDS), nullValue());
+      for (int i = 1; i < 10; i++) {
+        assertThat(futures.get(i).get(10, TimeUnit.SECONDS), equalTo("value" + (i - 1)));
+      }
+      assertThat(batches.get(), equalTo(1));
+    }
+
+    assertThat(client.submit(new MapMachine.TestGet("key", Query.ConsistencyLevel.LINEARIZABLE)).get(10, TimeUnit.SECONDS), equalTo("value9"));
+  }
+
+  @Test
+  public void submitsFullBatchesWithoutWaiting() throws Throwable {
+    CopycatClient client = clusterRule.createClient();
+    try (CommandBatcher<MapMachine.TestPut, String> batcher = CommandBatcher.<MapMachine.TestPut, String>builder()
+        .withClient(client)
+        .withBatch(MapMachine.TestPutAll::new)
+        .withMaxSize(5)
+        .withWindow(Duration.ofMinutes(1))
+        .build()) {
+
+      List<CompletableFuture<String>> futures = new ArrayList<>();
+      for (int i = 0; i < 5; i++) {
+        futures.add(batcher.submit(new MapMachine.TestPut("key" + i, "value")));
+      }
+
+      for (CompletableFuture<String> future : futures) {
+        assertThat(future.get(10, TimeUnit.SECONDS), nullValue());
+      }
+    }
+  }
+
+  @Test
+  public void failsBatchesWithMissingResults() throws Throwable {
+    CopycatClient client = clusterRule.createClient();
+    try (CommandBatcher<MapMachine.TestPut, String> batcher = CommandBatcher.<MapMachine.TestPut, String>builder()
+        .withClient(client)
+        .withBatch(puts -> new MapMachine.TestPutAll(puts.subList(0, puts.size() - 1)))
+        .withMaxSize(3)
+        .withWindow(Duration.ofMinutes(1))
+        .build()) {
+
+      List<CompletableFuture<String>> futures = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        futures.add(batcher.submit(new MapMachine.TestPut("key" + i, "value")));
+      }
+
+      for (CompletableFuture<String> future : futures) {
+        try {
+          future.get(10, TimeUnit.SECONDS);
+          fail("a batch with missing results should fail");
+        } catch (ExecutionException e) {
+          assertThat(e.getCause(), instanceOf(IllegalStateException.class));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void drainsPendingCommands() throws Throwable {
+    CopycatClient client = clusterRule.createClient();
+    try (CommandBatcher<MapMachine.TestPut, String> batcher = CommandBatcher.<MapMachine.TestPut, String>builder()
+        .withClient(client)
+        .withBatch(MapMachine.TestPutAll::new)
+        .withWindow(Duration.ofMinutes(1))
+        .build()) {
+
+      List<CompletableFuture<String>> futures = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        futures.add(batcher.submit(new MapMachine.TestPut("key" + i, "value")));
+      }
+
+      batcher.drain().get(10, TimeUnit.SECONDS);
+      for (CompletableFuture<String> future : futures) {
+        assertThat(future.isDone(), equalTo(true));
+      }
+    }
+  }
+}
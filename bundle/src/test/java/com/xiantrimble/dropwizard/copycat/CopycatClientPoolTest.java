@@ -0,0 +1,86 @@
+package com.xiantrimble.dropwizard.copycat;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import io.atomix.copycat.Query;
+import io.atomix.copycat.client.CopycatClient;
+
+/**
+ * Tests for routing operations over a pool of client sessions.
+ *
+ * @author Christian Trimble
+ */
+public class CopycatClientPoolTest {
+  public @Rule CopycatClusterRule<MapMachine.TestStateMachine> clusterRule = CopycatClusterRule.<MapMachine.TestStateMachine>builder()
+      .withStateMachineSupplier(MapMachine.TestStateMachine::new)
+      .build();
+
+  @Test
+  public void roundRobinUsesEverySession() throws Throwable {
+    CopycatClientPool pool = createPool(CopycatClientPool.Routing.ROUND_ROBIN);
+
+    Set<CopycatClient> used = new HashSet<>();
+    for (int i = 0; i < pool.size(); i++) {
+      used.add(pool.client("key"));
+    }
+
+    assertThat(used.size(), equalTo(pool.size()));
+  }
+
+  @Test
+  public void keyAffinityKeepsKeysOnOneSession() throws Throwable {
+    CopycatClientPool pool = createPool(CopycatClientPool.Routing.KEY_AFFINITY);
+
+    CopycatClient client = pool.client("key");
+    for (int i = 0; i < 10; i++) {
+      assertThat(pool.client("key"), sameInstance(client));
+    }
+  }
+
+  @Test
+  public void submitsThroughEverySession() throws Throwable {
+    CopycatClientPool pool = createPool(CopycatClientPool.Routing.ROUND_ROBIN);
+
+    for (int i = 0; i < pool.size(); i++) {
+      pool.submit(new MapMachine.TestPut("key" + i, "value" + i)).get(10, TimeUnit.SECONDS);
+    }
+
+    for (int i = 0; i < pool.size(); i++) {
+      assertThat(pool.submit(new MapMachine.TestGet("key" + i, Query.ConsistencyLevel.LINEARIZABLE)).get(10, TimeUnit.SECONDS), equalTo("value" + i));
+    }
+  }
+
+  @Test
+  public void queriesUseQuerySessions() throws Throwable {
+    CopycatClient command = clusterRule.createClient();
+    CopycatClient query = clusterRule.createClient();
+    CopycatClientPool pool = new CopycatClientPool(Arrays.asList(command), Arrays.asList(query), CopycatClientPool.Routing.KEY_AFFINITY);
+
+    assertThat(pool.client("key"), sameInstance(command));
+    assertThat(pool.queryClient("key"), sameInstance(query));
+
+    pool.submit(new MapMachine.TestPut("key", "value")).get(10, TimeUnit.SECONDS);
+    assertThat(pool.submit(new MapMachine.TestGet("key", Query.ConsistencyLevel.LINEARIZABLE)).get(10, TimeUnit.SECONDS), equalTo("value"));
+  }
+
+  @Test
+  public void queriesUseCommandSessionsByDefault() throws Throwable {
+    CopycatClientPool pool = createPool(CopycatClientPool.Routing.KEY_AFFINITY);
+
+    assertThat(pool.queryClient("key"), sameInstance(pool.client("key")));
+  }
+
+  CopycatClientPool createPool(CopycatClientPool.Routing routing) throws InterruptedException {
+    return new CopycatClientPool(Arrays.asList(clusterRule.createClient(), clusterRule.createClient(), clusterRule.createClient()), routing);
+  }
+}
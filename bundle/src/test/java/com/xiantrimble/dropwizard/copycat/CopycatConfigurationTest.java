@@ -0,0 +1,194 @@
+package com.xiantrimble.dropwizard.copycat;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import io.atomix.catalyst.transport.Address;
+import io.atomix.copycat.Query;
+import io.atomix.copycat.client.ConnectionStrategies;
+import io.atomix.copycat.client.RecoveryStrategies;
+import io.atomix.copycat.server.storage.StorageLevel;
+import io.dropwizard.configuration.ConfigurationException;
+import io.dropwizard.configuration.ConfigurationSourceProvider;
+import io.dropwizard.configuration.YamlConfigurationFactory;
+import io.dropwizard.jackson.Jackson;
+import io.dropwizard.jersey.validation.Validators;
+import io.dropwizard.util.Duration;
+import io.dropwizard.util.Size;
+
+/**
+ * Tests for reading and validating the copycat configuration block.
+ *
+ * @author Christian Trimble
+ */
+public class CopycatConfigurationTest {
+
+  YamlConfigurationFactory<CopycatConfiguration> factory =
+      new YamlConfigurationFactory<>(CopycatConfiguration.class, Validators.newValidator(), Jackson.newObjectMapper(), "dw");
+
+  @Test
+  public void readsStorage() throws Exception {
+    CopycatConfiguration configuration = parse(
+        "log: logs/node1",
+        "storage:",
+        "  level: MAPPED",
+        "  maxSegmentSize: 8MB",
+        "  maxEntriesPerSegment: 4096",
+        "  flushOnCommit: true",
+        "  compactionThreads: 3",
+        "  minorCompactionInterval: 30 seconds",
+        "  compactionThreshold: 0.25",
+        "  timedCompaction: true");
+
+    StorageConfiguration storage = configuration.getStorage();
+    assertThat(storage.getLevel(), equalTo(StorageLevel.MAPPED));
+    assertThat(storage.getMaxSegmentSize(), equalTo(Size.megabytes(8)));
+    assertThat(storage.getMaxEntriesPerSegment(), equalTo(4096));
+    assertThat(storage.isFlushOnCommit(), equalTo(true));
+    assertThat(storage.getCompactionThreads(), equalTo(3));
+    assertThat(storage.getMinorCompactionInterval(), equalTo(Duration.seconds(30)));
+    assertThat(storage.getMajorCompactionInterval(), equalTo(Duration.hours(1)));
+    assertThat(storage.getCompactionThreshold(), equalTo(0.25));
+    assertThat(storage.isTimedCompaction(), equalTo(true));
+  }
+
+  @Test
+  public void defaultsStorage() throws Exception {
+    CopycatConfiguration configuration = parse("log: logs/node1");
+
+    assertThat(configuration.getStorage().getLevel(), equalTo(StorageLevel.DISK));
+  }
+
+  @Test
+  public void readsPartitions() throws Exception {
+    CopycatConfiguration configuration = parse(
+        "address:",
+        "  host: localhost",
+        "  port: 9100",
+        "members:",
+        "  - host: localhost",
+        "    port: 9100",
+        "  - host: localhost",
+        "    port: 9200",
+        "log: logs/node1",
+        "partitions: 4");
+
+    assertThat(configuration.getPartitions(), equalTo(4));
+    assertThat(configuration.address(2), equalTo(new Address("localhost", 9102)));
+    assertThat(configuration.members(3), equalTo(new Address[] { new Address("localhost", 9103), new Address("localhost", 9203) }));
+    assertThat(configuration.log(2), equalTo(new File("logs/node1", "partition-2")));
+  }
+
+  @Test
+  public void measuresSerializedSizesWhenAsked() throws Exception {
+    assertThat(parse("log: logs/node1").isSerializedSizes(), equalTo(false));
+    assertThat(parse("log: logs/node1", "serializedSizes: true").isSerializedSizes(), equalTo(true));
+  }
+
+  @Test
+  public void usesTheLogOfASinglePartition() throws Exception {
+    CopycatConfiguration configuration = parse("log: logs/node1");
+
+    assertThat(configuration.getPartitions(), equalTo(1));
+    assertThat(configuration.log(0), equalTo(new File("logs/node1")));
+  }
+
+  @Test
+  public void readsTransport() throws Exception {
+    CopycatConfiguration configuration = parse(
+        "transport:",
+        "  threads: 4",
+        "  tcpNoDelay: true",
+        "  sendBufferSize: 256KB",
+        "  connectTimeout: 2 seconds",
+        "  shortCircuitLocal: false");
+
+    TransportConfiguration transport = configuration.getTransport();
+    assertThat(transport.getThreads(), equalTo(4));
+    assertThat(transport.isTcpNoDelay(), equalTo(true));
+    assertThat(transport.getSendBufferSize(), equalTo(Size.kilobytes(256)));
+    assertThat(transport.getReceiveBufferSize(), nullValue());
+    assertThat(transport.getConnectTimeout(), equalTo(Duration.seconds(2)));
+    assertThat(transport.isShortCircuitLocal(), equalTo(false));
+  }
+
+  @Test
+  public void readsClient() throws Exception {
+    CopycatConfiguration configuration = parse("client:", "  requestTimeout: 250ms", "  consistency: linearizable_lease",
+        "  sessions: 4", "  routing: key_affinity", "  submitWindow: 32");
+
+    assertThat(configuration.getClient().getRequestTimeout(), equalTo(Duration.milliseconds(250)));
+    assertThat(configuration.getClient().getConsistency(), equalTo(Query.ConsistencyLevel.LINEARIZABLE_LEASE));
+    assertThat(configuration.getClient().getSessions(), equalTo(4));
+    assertThat(configuration.getClient().getRouting(), equalTo(CopycatClientPool.Routing.KEY_AFFINITY));
+    assertThat(configuration.getClient().getSubmitWindow(), equalTo(32));
+  }
+
+  @Test
+  public void readsServerSelection() throws Exception {
+    CopycatConfiguration configuration = parse("client:", "  serverSelection: followers", "  querySelection: least_latency",
+        "  connection: exponential_backoff", "  recovery: close");
+
+    assertThat(configuration.getClient().getServerSelection(), equalTo(ServerSelection.FOLLOWERS));
+    assertThat(configuration.getClient().getQuerySelection(), equalTo(ServerSelection.LEAST_LATENCY));
+    assertThat(configuration.getClient().getConnection(), equalTo(ConnectionStrategies.EXPONENTIAL_BACKOFF));
+    assertThat(configuration.getClient().getRecovery(), equalTo(RecoveryStrategies.CLOSE));
+  }
+
+  @Test
+  public void readsHedging() throws Exception {
+    CopycatConfiguration configuration = parse("client:", "  hedging:", "    enabled: true", "    percentile: 0.99",
+        "    minDelay: 5ms");
+
+    HedgingConfiguration hedging = configuration.getClient().getHedging();
+    assertThat(hedging.isEnabled(), equalTo(true));
+    assertThat(hedging.getPercentile(), equalTo(0.99));
+    assertThat(hedging.getMinDelay(), equalTo(Duration.milliseconds(5)));
+  }
+
+  @Test(expected = ConfigurationException.class)
+  public void rejectsHedgingPercentileOfOne() throws Exception {
+    parse("client:", "  hedging:", "    percentile: 1");
+  }
+
+  @Test
+  public void defaultsToLeaderSelection() throws Exception {
+    CopycatConfiguration configuration = parse("client:", "  sessions: 1");
+
+    assertThat(configuration.getClient().getServerSelection(), equalTo(ServerSelection.LEADER));
+    assertThat(configuration.getClient().getQuerySelection(), nullValue());
+  }
+
+  @Test(expected = ConfigurationException.class)
+  public void rejectsZeroPartitions() throws Exception {
+    parse("partitions: 0");
+  }
+
+  @Test(expected = ConfigurationException.class)
+  public void rejectsZeroTransportThreads() throws Exception {
+    parse("transport:", "  threads: 0");
+  }
+
+  @Test(expected = ConfigurationException.class)
+  public void rejectsTooManyEntriesPerSegment() throws Exception {
+    parse("storage:", "  maxEntriesPerSegment: 2000000");
+  }
+
+  @Test(expected = ConfigurationException.class)
+  public void rejectsCompactionThresholdAboveOne() throws Exception {
+    parse("storage:", "  compactionThreshold: 1.5");
+  }
+
+  CopycatConfiguration parse(String... lines) throws Exception {
+    byte[] yaml = String.join("\n", lines).getBytes(StandardCharsets.UTF_8);
+    ConfigurationSourceProvider provider = path -> new ByteArrayInputStream(yaml);
+    return factory.build(provider, "copycat.yml");
+  }
+}
@@ -0,0 +1,107 @@
+package com.xiantrimble.dropwizard.copycat;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import io.atomix.copycat.Query;
+
+/**
+ * Tests for routing keys to the client pools of partitioned groups.
+ *
+ * @author Christian Trimble
+ */
+public class CopycatPartitionsTest {
+  public @Rule CopycatClusterRule<MapMachine.TestStateMachine> first = CopycatClusterRule.<MapMachine.TestStateMachine>builder()
+      .withStateMachineSupplier(MapMachine.TestStateMachine::new)
+      .withInitalPort(5000)
+      .build();
+  public @Rule CopycatClusterRule<MapMachine.TestStateMachine> second = CopycatClusterRule.<MapMachine.TestStateMachine>builder()
+      .withStateMachineSupplier(MapMachine.TestStateMachine::new)
+      .withInitalPort(5100)
+      .build();
+
+  @Test
+  public void spreadsKeysOverPartitions() {
+    int[] counts = new int[4];
+    for (int i = 0; i < 1000; i++) {
+      counts[CopycatPartitions.partition("key" + i, counts.length)]++;
+    }
+
+    for (int count : counts) {
+      assertThat(count, greaterThan(150));
+    }
+  }
+
+  @Test
+  public void routesKeysToTheirPartition() throws Throwable {
+    CopycatPartitions partitions = createPartitions();
+
+    for (int i = 0; i < 10; i++) {
+      String key = "key" + i;
+      partitions.submit(key, new MapMachine.TestPut(key, "value" + i)).get(10, TimeUnit.SECONDS);
+    }
+
+    for (int i = 0; i < 10; i++) {
+      String key = "key" + i;
+      int partition = partitions.partition(key);
+      assertThat(get(partitions.getPools().get(partition), key), equalTo("value" + i));
+      assertThat(get(partitions.getPools().get(1 - partition), key), nullValue());
+    }
+  }
+
+  @Test
+  public void queriesEveryPartition() throws Throwable {
+    CopycatPartitions partitions = createPartitions();
+    String key = "key";
+    partitions.submit(key, new MapMachine.TestPut(key, "value")).get(10, TimeUnit.SECONDS);
+
+    String[] expected = new String[2];
+    expected[partitions.partition(key)] = "value";
+    assertThat(partitions.submitAll(() -> new MapMachine.TestGet(key, Query.ConsistencyLevel.LINEARIZABLE)).get(10, TimeUnit.SECONDS),
+        contains(expected));
+  }
+
+  @Test
+  public void groupsKeysByPartition() throws Throwable {
+    CopycatPartitions partitions = createPartitions();
+    List<String> keys = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      keys.add("key" + i);
+    }
+
+    Map<Integer, List<String>> groups = partitions.group(keys);
+
+    assertThat(groups.keySet(), contains(0, 1));
+    for (Map.Entry<Integer, List<String>> group : groups.entrySet()) {
+      List<String> expected = new ArrayList<>();
+      for (String key : keys) {
+        if (partitions.partition(key) == group.getKey()) {
+          expected.add(key);
+        }
+      }
+      assertThat(group.getValue(), equalTo(expected));
+    }
+  }
+
+  CopycatPartitions createPartitions() throws InterruptedException {
+    return new CopycatPartitions(Arrays.asList(
+        new CopycatClientPool(Arrays.asList(first.createClient()), CopycatClientPool.Routing.KEY_AFFINITY),
+        new CopycatClientPool(Arrays.asList(second.createClient()), CopycatClientPool.Routing.KEY_AFFINITY)));
+  }
+
+  String get(CopycatClientPool pool, String key) throws Exception {
+    return pool.submit(new MapMachine.TestGet(key, Query.ConsistencyLevel.LINEARIZABLE)).get(10, TimeUnit.SECONDS);
+  }
+}
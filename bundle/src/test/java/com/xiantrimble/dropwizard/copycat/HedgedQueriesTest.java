@@ -0,0 +1,168 @@
+package com.xiantrimble.dropwizard.copycat;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+import io.atomix.copycat.Query;
+import io.atomix.copycat.client.CopycatClient;
+
+/**
+ * Tests for hedging slow sequential queries.
+ *
+ * @author Christian Trimble
+ */
+public class HedgedQueriesTest {
+  MetricRegistry metrics = new MetricRegistry();
+  HedgedQueries hedged;
+
+  @After
+  public void close() {
+    if( hedged != null ) {
+      hedged.close();
+    }
+  }
+
+  @Test
+  public void doesNotHedgeFastQueries() throws Exception {
+    hedged = create(query -> CompletableFuture.completedFuture("primary"), query -> CompletableFuture.completedFuture("hedge"));
+
+    assertThat(hedged.submit("key", sequential()).get(1, TimeUnit.SECONDS), equalTo("primary"));
+    Thread.sleep(50);
+
+    assertThat(meter("hedges"), equalTo(0L));
+  }
+
+  @Test
+  public void hedgesSlowQueries() throws Exception {
+    hedged = create(query -> new CompletableFuture<>(), query -> CompletableFuture.completedFuture("hedge"));
+
+    assertThat(hedged.submit("key", sequential()).get(1, TimeUnit.SECONDS), equalTo("hedge"));
+    assertThat(meter("hedges"), equalTo(1L));
+    assertThat(meter("hedge-wins"), equalTo(1L));
+  }
+
+  @Test
+  public void hedgesFailedQueriesImmediately() throws Exception {
+    CompletableFuture<Object> failed = new CompletableFuture<>();
+    failed.completeExceptionally(new IllegalStateException("failed"));
+    hedged = create(query -> failed, query -> CompletableFuture.completedFuture("hedge"), Duration.ofMinutes(1));
+
+    assertThat(hedged.submit("key", sequential()).get(1, TimeUnit.SECONDS), equalTo("hedge"));
+  }
+
+  @Test
+  public void waitsForTheHedgeWhenThePrimaryFailsWhileItIsSent() throws Exception {
+    CompletableFuture<Object> primary = new CompletableFuture<>();
+    CountDownLatch sending = new CountDownLatch(1);
+    CountDownLatch primaryFailed = new CountDownLatch(1);
+    hedged = create(query -> primary, query -> {
+      sending.countDown();
+      try {
+        primaryFailed.await(1, TimeUnit.SECONDS);
+      } catch( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+      }
+      return CompletableFuture.completedFuture("hedge");
+    });
+
+    CompletableFuture<String> result = hedged.submit("key", sequential());
+    assertThat(sending.await(1, TimeUnit.SECONDS), equalTo(true));
+    primary.completeExceptionally(new IllegalStateException("failed"));
+    assertThat(result.isDone(), equalTo(false));
+    primaryFailed.countDown();
+
+    assertThat(result.get(1, TimeUnit.SECONDS), equalTo("hedge"));
+    assertThat(meter("hedges"), equalTo(1L));
+  }
+
+  @Test(expected = ExecutionException.class)
+  public void failsWhenEveryAttemptFails() throws Exception {
+    CompletableFuture<Object> failed = new CompletableFuture<>();
+    failed.completeExceptionally(new IllegalStateException("failed"));
+    hedged = create(query -> failed, query -> failed);
+
+    hedged.submit("key", sequential()).get(1, TimeUnit.SECONDS);
+  }
+
+  @Test
+  public void doesNotHedgeLinearizableQueries() throws Exception {
+    CompletableFuture<Object> primary = new CompletableFuture<>();
+    hedged = create(query -> primary, query -> CompletableFuture.completedFuture("hedge"));
+
+    CompletableFuture<String> result = hedged.submit("key", new MapMachine.TestGet("key", Query.ConsistencyLevel.LINEARIZABLE));
+    Thread.sleep(50);
+    assertThat(result.isDone(), equalTo(false));
+
+    primary.complete("primary");
+    assertThat(result.get(1, TimeUnit.SECONDS), equalTo("primary"));
+    assertThat(meter("hedges"), equalTo(0L));
+  }
+
+  @Test
+  public void sharesARegistryWithOtherInstances() throws Exception {
+    hedged = create(query -> CompletableFuture.completedFuture("primary"), query -> CompletableFuture.completedFuture("hedge"));
+    try( HedgedQueries other = create(query -> CompletableFuture.completedFuture("other"), query -> CompletableFuture.completedFuture("hedge")) ) {
+      assertThat(other.submit("key", sequential()).get(1, TimeUnit.SECONDS), equalTo("other"));
+    }
+
+    assertThat(metrics.getGauges().containsKey(MetricRegistry.name(HedgedQueries.PREFIX, "delay")), equalTo(true));
+    hedged.close();
+    assertThat(metrics.getGauges().containsKey(MetricRegistry.name(HedgedQueries.PREFIX, "delay")), equalTo(false));
+  }
+
+  HedgedQueries create(Function<Query<?>, CompletableFuture<Object>> primary, Function<Query<?>, CompletableFuture<Object>> secondary) {
+    return create(primary, secondary, Duration.ofMillis(1));
+  }
+
+  HedgedQueries create(Function<Query<?>, CompletableFuture<Object>> primary, Function<Query<?>, CompletableFuture<Object>> secondary, Duration minDelay) {
+    CopycatClient first = client(primary);
+    CopycatClient second = client(secondary);
+    // order the query sessions so key affinity routes "key" to the primary.
+    CopycatClientPool pool = new CopycatClientPool(Arrays.asList(first), Math.floorMod("key".hashCode(), 2) == 0
+        ? Arrays.asList(first, second)
+        : Arrays.asList(second, first), CopycatClientPool.Routing.KEY_AFFINITY);
+    return HedgedQueries.builder()
+        .withPool(pool)
+        .withMetrics(metrics)
+        .withMinDelay(minDelay)
+        .build();
+  }
+
+  long meter(String name) {
+    return metrics.meter(MetricRegistry.name(HedgedQueries.PREFIX, name)).getCount();
+  }
+
+  static MapMachine.TestGet sequential() {
+    return new MapMachine.TestGet("key", Query.ConsistencyLevel.SEQUENTIAL);
+  }
+
+  static CopycatClient client(Function<Query<?>, CompletableFuture<Object>> queries) {
+    return (CopycatClient) Proxy.newProxyInstance(CopycatClient.class.getClassLoader(), new Class<?>[] { CopycatClient.class },
+        (proxy, method, args) -> {
+          if( method.getName().equals("submit") && args[0] instanceof Query ) {
+            return queries.apply((Query<?>) args[0]);
+          }
+          if( method.getName().equals("hashCode") ) {
+            return System.identityHashCode(proxy);
+          }
+          if( method.getName().equals("equals") ) {
+            return proxy == args[0];
+          }
+          throw new UnsupportedOperationException(method.getName());
+        });
+  }
+}
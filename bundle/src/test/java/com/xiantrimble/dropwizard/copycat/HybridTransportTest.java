@@ -0,0 +1,116 @@
+package com.xiantrimble.dropwizard.copycat;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+
+import io.atomix.catalyst.transport.Address;
+import io.atomix.catalyst.transport.Client;
+import io.atomix.catalyst.transport.Connection;
+import io.atomix.catalyst.transport.Server;
+import io.atomix.catalyst.transport.Transport;
+import io.atomix.catalyst.transport.netty.NettyTransport;
+import io.atomix.copycat.Query;
+import io.atomix.copycat.client.CopycatClient;
+import io.atomix.copycat.server.cluster.Member;
+
+/**
+ * Tests for short circuiting connections to servers in the same JVM.
+ *
+ * @author Christian Trimble
+ */
+public class HybridTransportTest {
+  CountingTransport netty = new CountingTransport(new NettyTransport());
+  HybridTransport hybrid = new HybridTransport(netty);
+
+  public @Rule CopycatClusterRule<MapMachine.TestStateMachine> clusterRule = CopycatClusterRule.<MapMachine.TestStateMachine>builder()
+      .withStateMachineSupplier(MapMachine.TestStateMachine::new)
+      .withTransportSupplier(() -> new SharedTransport(hybrid))
+      .build();
+
+  @After
+  public void closeTransport() {
+    hybrid.close();
+  }
+
+  @Test
+  public void connectsToLocalServersInMemory() throws Throwable {
+    // servers may reach members over the network before those members are listening.
+    netty.connects.set(0);
+    CopycatClient client = clusterRule.createClient();
+
+    assertThat(client.submit(new MapMachine.TestPut("key", "value")).get(10, TimeUnit.SECONDS), nullValue());
+    assertThat(client.submit(new MapMachine.TestGet("key", Query.ConsistencyLevel.LINEARIZABLE)).get(10, TimeUnit.SECONDS), equalTo("value"));
+
+    for (Member member : clusterRule.getMembers()) {
+      assertThat(hybrid.isLocal(member.clientAddress()), equalTo(true));
+      assertThat(hybrid.isLocal(member.serverAddress()), equalTo(true));
+    }
+    assertThat(netty.connects.get(), equalTo(0));
+  }
+
+  @Test
+  public void connectsToOtherAddressesRemotely() throws Throwable {
+    Address other = new Address("localhost", 4999);
+    assertThat(hybrid.isLocal(other), equalTo(false));
+    try {
+      hybrid.client().connect(other).get(10, TimeUnit.SECONDS);
+    } catch (Exception e) {
+      // nothing is listening, only the route matters.
+    }
+    // the cluster's servers may still be connecting over the network, so only connects to other count.
+    assertThat(netty.connectsTo(other), equalTo(1));
+  }
+
+  static class CountingTransport implements Transport {
+    final Transport transport;
+    final AtomicInteger connects = new AtomicInteger();
+    final ConcurrentMap<Address, Integer> addresses = new ConcurrentHashMap<>();
+
+    CountingTransport(Transport transport) {
+      this.transport = transport;
+    }
+
+    @Override
+    public Client client() {
+      Client client = transport.client();
+      return new Client() {
+        @Override
+        public CompletableFuture<Connection> connect(Address address) {
+          connects.incrementAndGet();
+          addresses.merge(address, 1, Integer::sum);
+          return client.connect(address);
+        }
+
+        @Override
+        public CompletableFuture<Void> close() {
+          return client.close();
+        }
+      };
+    }
+
+    int connectsTo(Address address) {
+      return addresses.getOrDefault(address, 0);
+    }
+
+    @Override
+    public Server server() {
+      return transport.server();
+    }
+
+    @Override
+    public void close() {
+      transport.close();
+    }
+  }
+}
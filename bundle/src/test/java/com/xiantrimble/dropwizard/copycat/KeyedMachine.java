@@ -0,0 +1,65 @@
+package com.xiantrimble.dropwizard.copycat;
+
+public class KeyedMachine {
+
+  public static class TestStateMachine extends KeyedStateMachine<String, String> {
+  }
+
+  /**
+   * Test put.
+   */
+  public static class TestPut implements KeyedStateMachine.Put<String, String> {
+    private static final long serialVersionUID = 1L;
+    private String key;
+    private String value;
+
+    public TestPut(String key, String value) {
+      this.key = key;
+      this.value = value;
+    }
+
+    @Override
+    public String key() {
+      return key;
+    }
+
+    @Override
+    public String value() {
+      return value;
+    }
+  }
+
+  /**
+   * Test delete.
+   */
+  public static class TestDelete implements KeyedStateMachine.Delete<String, String> {
+    private static final long serialVersionUID = 1L;
+    private String key;
+
+    public TestDelete(String key) {
+      this.key = key;
+    }
+
+    @Override
+    public String key() {
+      return key;
+    }
+  }
+
+  /**
+   * Test get.
+   */
+  public static class TestGet implements KeyedStateMachine.Get<String, String> {
+    private static final long serialVersionUID = 1L;
+    private String key;
+
+    public TestGet(String key) {
+      this.key = key;
+    }
+
+    @Override
+    public String key() {
+      return key;
+    }
+  }
+}
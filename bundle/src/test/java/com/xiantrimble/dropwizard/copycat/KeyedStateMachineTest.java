@@ -0,0 +1,125 @@
+package com.xiantrimble.dropwizard.copycat;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import io.atomix.copycat.Operation;
+import io.atomix.copycat.client.CopycatClient;
+import io.atomix.copycat.server.Commit;
+import io.atomix.copycat.server.session.ServerSession;
+
+/**
+ * Tests for the keyed state machine base.
+ *
+ * @author Christian Trimble
+ */
+public class KeyedStateMachineTest {
+  public @Rule CopycatClusterRule<KeyedMachine.TestStateMachine> clusterRule = CopycatClusterRule.<KeyedMachine.TestStateMachine>builder()
+      .withStateMachineSupplier(KeyedMachine.TestStateMachine::new)
+      .build();
+
+  @Test
+  public void putsGetsAndDeletes() throws Throwable {
+    CopycatClient client = clusterRule.createClient();
+
+    assertThat(client.submit(new KeyedMachine.TestPut("key", "value1")).get(10, TimeUnit.SECONDS), nullValue());
+    assertThat(client.submit(new KeyedMachine.TestPut("key", "value2")).get(10, TimeUnit.SECONDS), equalTo("value1"));
+    assertThat(client.submit(new KeyedMachine.TestGet("key")).get(10, TimeUnit.SECONDS), equalTo("value2"));
+    assertThat(client.submit(new KeyedMachine.TestDelete("key")).get(10, TimeUnit.SECONDS), equalTo("value2"));
+    assertThat(client.submit(new KeyedMachine.TestGet("key")).get(10, TimeUnit.SECONDS), nullValue());
+  }
+
+  @Test
+  public void releasesOverwrittenCommits() {
+    KeyedMachine.TestStateMachine machine = new KeyedMachine.TestStateMachine();
+    TestCommit<KeyedMachine.TestPut> first = new TestCommit<>(1, new KeyedMachine.TestPut("key", "value1"));
+    TestCommit<KeyedMachine.TestPut> second = new TestCommit<>(2, new KeyedMachine.TestPut("key", "value2"));
+
+    machine.put(first);
+    machine.put(second);
+
+    assertThat(first.released, equalTo(true));
+    assertThat(second.released, equalTo(false));
+  }
+
+  @Test
+  public void releasesDeletedCommitsAndTombstones() {
+    KeyedMachine.TestStateMachine machine = new KeyedMachine.TestStateMachine();
+    TestCommit<KeyedMachine.TestPut> put = new TestCommit<>(1, new KeyedMachine.TestPut("key", "value"));
+    TestCommit<KeyedMachine.TestDelete> delete = new TestCommit<>(2, new KeyedMachine.TestDelete("key"));
+
+    machine.put(put);
+    assertThat(machine.delete(delete), equalTo("value"));
+
+    assertThat(put.released, equalTo(true));
+    assertThat(delete.released, equalTo(true));
+  }
+
+  static class TestCommit<T extends Operation<?>> implements Commit<T> {
+    private final long index;
+    private final T operation;
+    boolean released;
+
+    TestCommit(long index, T operation) {
+      this.index = index;
+      this.operation = operation;
+    }
+
+    @Override
+    public long index() {
+      return index;
+    }
+
+    @Override
+    public ServerSession session() {
+      return null;
+    }
+
+    @Override
+    public Instant time() {
+      return Instant.now();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Class<T> type() {
+      return (Class<T>) operation.getClass();
+    }
+
+    @Override
+    public T operation() {
+      if (released) {
+        throw new IllegalStateException("commit released");
+      }
+      return operation;
+    }
+
+    @Override
+    public Commit<T> acquire() {
+      return this;
+    }
+
+    @Override
+    public boolean release() {
+      released = true;
+      return true;
+    }
+
+    @Override
+    public int references() {
+      return released ? 0 : 1;
+    }
+
+    @Override
+    public void close() {
+      release();
+    }
+  }
+}
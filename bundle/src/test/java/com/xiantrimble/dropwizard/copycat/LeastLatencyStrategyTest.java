@@ -0,0 +1,118 @@
+package com.xiantrimble.dropwizard.copycat;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import io.atomix.catalyst.transport.Address;
+import io.atomix.catalyst.transport.local.LocalServerRegistry;
+import io.atomix.catalyst.transport.local.LocalTransport;
+import io.atomix.copycat.Query;
+import io.atomix.copycat.client.CopycatClient;
+import io.atomix.copycat.client.ServerSelectionStrategies;
+
+/**
+ * Tests for selecting followers by their observed latency.
+ *
+ * @author Christian Trimble
+ */
+public class LeastLatencyStrategyTest {
+  static Address LEADER = new Address("localhost", 5000);
+  static Address FAST = new Address("localhost", 5001);
+  static Address SLOW = new Address("localhost", 5002);
+
+  LocalServerRegistry registry = new LocalServerRegistry();
+  public @Rule CopycatClusterRule<MapMachine.TestStateMachine> clusterRule = CopycatClusterRule.<MapMachine.TestStateMachine>builder()
+      .withStateMachineSupplier(MapMachine.TestStateMachine::new)
+      .withTransportSupplier(() -> new LocalTransport(registry))
+      .build();
+
+  @Test
+  public void averagesRoundTrips() {
+    LeastLatencyStrategy strategy = new LeastLatencyStrategy(0.5);
+
+    strategy.record(FAST, 100);
+    strategy.record(FAST, 200);
+
+    assertThat(strategy.latency(FAST), closeTo(150, 0.001));
+  }
+
+  @Test
+  public void ordersFollowersByLatencyWithLeaderLast() {
+    LeastLatencyStrategy strategy = new LeastLatencyStrategy();
+    strategy.record(LEADER, 1);
+    strategy.record(FAST, 10);
+    strategy.record(SLOW, 1000);
+
+    assertThat(strategy.selectConnections(LEADER, servers()), contains(FAST, SLOW, LEADER));
+  }
+
+  @Test
+  public void triesUnmeasuredServersFirst() {
+    LeastLatencyStrategy strategy = new LeastLatencyStrategy();
+    strategy.record(FAST, 10);
+
+    assertThat(strategy.selectConnections(LEADER, servers()), contains(SLOW, FAST, LEADER));
+  }
+
+  @Test
+  public void offsetsFollowersWithLeaderLast() {
+    LeastLatencyStrategy strategy = new LeastLatencyStrategy();
+    strategy.record(FAST, 10);
+    strategy.record(SLOW, 1000);
+
+    assertThat(strategy.offset(0).selectConnections(LEADER, servers()), contains(FAST, SLOW, LEADER));
+    assertThat(strategy.offset(1).selectConnections(LEADER, servers()), contains(SLOW, FAST, LEADER));
+    assertThat(strategy.offset(2).selectConnections(LEADER, servers()), contains(FAST, SLOW, LEADER));
+    assertThat(ServerSelection.LEAST_LATENCY.strategy(strategy, 1).selectConnections(LEADER, servers()), contains(SLOW, FAST, LEADER));
+  }
+
+  @Test
+  public void usesAllServersWithoutALeader() {
+    LeastLatencyStrategy strategy = new LeastLatencyStrategy();
+
+    assertThat(strategy.selectConnections(null, servers()), containsInAnyOrder(LEADER, FAST, SLOW));
+  }
+
+  @Test
+  public void recordsRoundTripsOfSessions() throws Throwable {
+    LeastLatencyStrategy strategy = new LeastLatencyStrategy();
+    CopycatClient client = CopycatClient.builder(clusterRule.getMembers().get(0).clientAddress())
+        .withTransport(strategy.recording(new LocalTransport(registry)))
+        .withServerSelectionStrategy(strategy)
+        .build();
+    client.connect().get(10, TimeUnit.SECONDS);
+    try {
+      client.submit(new MapMachine.TestPut("key", "value")).get(10, TimeUnit.SECONDS);
+      assertThat(client.submit(new MapMachine.TestGet("key", Query.ConsistencyLevel.SEQUENTIAL)).get(10, TimeUnit.SECONDS), equalTo("value"));
+
+      assertThat(clusterRule.getMembers().stream()
+          .map(member -> strategy.latency(member.clientAddress()))
+          .filter(latency -> latency != null)
+          .findAny()
+          .orElse(null), notNullValue());
+    } finally {
+      client.close().get(10, TimeUnit.SECONDS);
+    }
+  }
+
+  @Test
+  public void leaderSelectionIsUnchanged() {
+    assertThat(ServerSelection.LEADER.strategy(null), equalTo(ServerSelectionStrategies.LEADER));
+  }
+
+  static List<Address> servers() {
+    return new ArrayList<>(Arrays.asList(LEADER, FAST, SLOW));
+  }
+}
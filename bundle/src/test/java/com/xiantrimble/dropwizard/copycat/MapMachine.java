@@ -1,6 +1,8 @@
 package com.xiantrimble.dropwizard.copycat;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import io.atomix.copycat.Command;
@@ -47,6 +49,18 @@ public class MapMachine {
       }
     }
   
+    public List<String> putAll(Commit<MapMachine.TestPutAll> putAll) {
+      try {
+        List<String> previous = new ArrayList<>();
+        for (TestPut put : putAll.command().puts()) {
+          previous.add(values.put(put.key(), put.value()));
+        }
+        return previous;
+      } finally {
+        putAll.release();
+      }
+    }
+  
     public String get(Commit<MapMachine.TestGet> commit) {
       try {
         return values.get(commit.command().key());
@@ -98,6 +112,27 @@ public class MapMachine {
     }
   }
 
+  /**
+   * Test batch command.
+   */
+  public static class TestPutAll implements Command<List<String>> {
+    private static final long serialVersionUID = 1L;
+    private List<TestPut> puts;
+
+    public TestPutAll(List<TestPut> puts) {
+      this.puts = new ArrayList<>(puts);
+    }
+
+    @Override
+    public CompactionMode compaction() {
+      return CompactionMode.QUORUM;
+    }
+
+    public List<TestPut> puts() {
+      return puts;
+    }
+  }
+
   /**
    * Test query.
    */
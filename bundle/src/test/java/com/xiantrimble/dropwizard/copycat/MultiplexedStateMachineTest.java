@@ -0,0 +1,208 @@
+package com.xiantrimble.dropwizard.copycat;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.eclipse.jetty.util.component.LifeCycle;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.inject.Guice;
+import com.xiantrimble.dropwizard.copycat.guice.CopycatModule;
+import com.xiantrimble.dropwizard.copycat.guice.MultiplexedStateMachineModule;
+
+import io.atomix.catalyst.serializer.Serializer;
+import io.atomix.copycat.Query;
+import io.atomix.copycat.client.CopycatClient;
+import io.atomix.copycat.server.CopycatServer;
+import io.atomix.copycat.server.Snapshottable;
+import io.atomix.copycat.server.StateMachine;
+import io.atomix.copycat.server.storage.Storage;
+import io.atomix.copycat.server.storage.StorageLevel;
+import io.atomix.copycat.server.storage.snapshot.Snapshot;
+import io.atomix.copycat.server.storage.snapshot.SnapshotReader;
+import io.atomix.copycat.server.storage.snapshot.SnapshotStore;
+import io.atomix.copycat.server.storage.snapshot.SnapshotWriter;
+import io.dropwizard.Configuration;
+import io.dropwizard.jackson.Jackson;
+import io.dropwizard.jersey.validation.Validators;
+import io.dropwizard.setup.Environment;
+
+/**
+ * Tests for hosting several state machines in one Copycat group.
+ *
+ * @author Christian Trimble
+ */
+public class MultiplexedStateMachineTest {
+  public @Rule CopycatClusterRule<StateMachine> clusterRule = CopycatClusterRule.<StateMachine>builder()
+      .withStateMachineSupplier(MultiplexedStateMachine.supplier(namespaces()))
+      .build();
+
+  @Test
+  public void routesOperationsToTheirNamespace() throws Throwable {
+    CopycatClient client = clusterRule.createClient();
+
+    client.submit(MultiplexedStateMachine.command("map", new MapMachine.TestPut("key", "map value"))).get(10, TimeUnit.SECONDS);
+    client.submit(MultiplexedStateMachine.command("keyed", new KeyedMachine.TestPut("key", "keyed value"))).get(10, TimeUnit.SECONDS);
+
+    assertThat(client.submit(MultiplexedStateMachine.query("map", new MapMachine.TestGet("key", Query.ConsistencyLevel.LINEARIZABLE)))
+        .get(10, TimeUnit.SECONDS), equalTo("map value"));
+    assertThat(client.submit(MultiplexedStateMachine.query("keyed", new KeyedMachine.TestGet("key"))).get(10, TimeUnit.SECONDS),
+        equalTo("keyed value"));
+  }
+
+  @Test
+  public void returnsResultsOfTheNamespace() throws Throwable {
+    CopycatClient client = clusterRule.createClient();
+
+    client.submit(MultiplexedStateMachine.command("keyed", new KeyedMachine.TestPut("key", "first"))).get(10, TimeUnit.SECONDS);
+
+    assertThat(client.submit(MultiplexedStateMachine.command("keyed", new KeyedMachine.TestPut("key", "second"))).get(10, TimeUnit.SECONDS),
+        equalTo("first"));
+    assertThat(client.submit(MultiplexedStateMachine.command("keyed", new KeyedMachine.TestDelete("key"))).get(10, TimeUnit.SECONDS),
+        equalTo("second"));
+    assertThat(client.submit(MultiplexedStateMachine.query("map", new MapMachine.TestGet("key", Query.ConsistencyLevel.LINEARIZABLE)))
+        .get(10, TimeUnit.SECONDS), nullValue());
+  }
+
+  @Test
+  public void snapshotsEachNamespace() {
+    Map<String, StateMachine> stateMachines = new HashMap<>();
+    stateMachines.put("first", new Counter(1));
+    stateMachines.put("second", new Counter(2));
+    stateMachines.put("keyed", new KeyedMachine.TestStateMachine());
+    MultiplexedStateMachine.Snapshotting source = new MultiplexedStateMachine.Snapshotting(stateMachines);
+
+    Map<String, StateMachine> installed = new HashMap<>();
+    installed.put("first", new Counter(0));
+    installed.put("second", new Counter(0));
+    installed.put("keyed", new KeyedMachine.TestStateMachine());
+    MultiplexedStateMachine.Snapshotting target = new MultiplexedStateMachine.Snapshotting(installed);
+
+    Snapshot snapshot = snapshotStore().createSnapshot(1);
+    try( SnapshotWriter writer = snapshot.writer() ) {
+      source.snapshot(writer);
+    }
+    snapshot.complete();
+    try( SnapshotReader reader = snapshot.reader() ) {
+      target.install(reader);
+    }
+
+    assertThat(((Counter) installed.get("first")).value, equalTo(1));
+    assertThat(((Counter) installed.get("second")).value, equalTo(2));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void rejectsSnapshotsOfUnknownNamespaces() {
+    Map<String, StateMachine> stateMachines = new HashMap<>();
+    stateMachines.put("first", new Counter(1));
+
+    Snapshot snapshot = snapshotStore().createSnapshot(1);
+    try( SnapshotWriter writer = snapshot.writer() ) {
+      new MultiplexedStateMachine.Snapshotting(stateMachines).snapshot(writer);
+    }
+    snapshot.complete();
+
+    Map<String, StateMachine> installed = new HashMap<>();
+    installed.put("second", new Counter(0));
+    try( SnapshotReader reader = snapshot.reader() ) {
+      new MultiplexedStateMachine.Snapshotting(installed).install(reader);
+    }
+  }
+
+  @Test
+  public void snapshotsWhenAnyNamespaceIsSnapshottable() {
+    assertThat(MultiplexedStateMachine.supplier(namespaces()).get(), instanceOf(Snapshottable.class));
+
+    Map<String, Supplier<StateMachine>> keyed = new HashMap<>();
+    keyed.put("keyed", KeyedMachine.TestStateMachine::new);
+    assertThat(MultiplexedStateMachine.supplier(keyed).get(), instanceOf(MultiplexedStateMachine.class));
+    assertThat(MultiplexedStateMachine.supplier(keyed).get(), not(instanceOf(Snapshottable.class)));
+  }
+
+  @Test
+  public void hostsNamespacesBoundWithGuice() throws Throwable {
+    CopycatBundle<Configuration> bundle = CopycatBundle.<Configuration>builder()
+        .withConfiguration(configuration -> guiceConfiguration())
+        .withInjectedStateMachine()
+        .build();
+    Environment environment = new Environment("test", Jackson.newObjectMapper(), Validators.newValidator(),
+        new MetricRegistry(), getClass().getClassLoader());
+    bundle.run(new Configuration(), environment);
+    Guice.createInjector(new CopycatModule(bundle), new MultiplexedStateMachineModule(), binder -> {
+      CopycatModule.namespaces(binder).addBinding("map").toInstance(MapMachine.TestStateMachine::new);
+      CopycatModule.namespaces(binder).addBinding("keyed").toInstance(KeyedMachine.TestStateMachine::new);
+    });
+
+    List<LifeCycle> managed = environment.lifecycle().getManagedObjects();
+    for (LifeCycle lifeCycle : managed) {
+      lifeCycle.start();
+    }
+    try {
+      assertThat(bundle.getServer(), instanceOf(CopycatServer.class));
+      CopycatClient client = bundle.getClient();
+      client.submit(MultiplexedStateMachine.command("map", new MapMachine.TestPut("key", "map value"))).get(10, TimeUnit.SECONDS);
+      assertThat(client.submit(MultiplexedStateMachine.query("map", new MapMachine.TestGet("key", Query.ConsistencyLevel.LINEARIZABLE)))
+          .get(10, TimeUnit.SECONDS), equalTo("map value"));
+    } finally {
+      for (int i = managed.size() - 1; i >= 0; i--) {
+        managed.get(i).stop();
+      }
+    }
+  }
+
+  static CopycatConfiguration guiceConfiguration() {
+    CopycatConfiguration.HostAndPort address = new CopycatConfiguration.HostAndPort();
+    address.setHost("localhost");
+    address.setPort(5700);
+    CopycatConfiguration configuration = new CopycatConfiguration();
+    configuration.setAddress(address);
+    configuration.setMembers(Collections.singletonList(address));
+    configuration.setLog("target/multiplexed-state-machine-test");
+    configuration.getStorage().setLevel(StorageLevel.MEMORY);
+    return configuration;
+  }
+
+  static Map<String, Supplier<StateMachine>> namespaces() {
+    Map<String, Supplier<StateMachine>> namespaces = new HashMap<>();
+    namespaces.put("map", MapMachine.TestStateMachine::new);
+    namespaces.put("keyed", KeyedMachine.TestStateMachine::new);
+    return namespaces;
+  }
+
+  static SnapshotStore snapshotStore() {
+    return new SnapshotStore("test", Storage.builder().withStorageLevel(StorageLevel.MEMORY).build(), new Serializer());
+  }
+
+  /**
+   * A snapshottable state machine with one value.
+   */
+  public static class Counter extends StateMachine implements Snapshottable {
+    int value;
+
+    public Counter(int value) {
+      this.value = value;
+    }
+
+    @Override
+    public void snapshot(SnapshotWriter writer) {
+      writer.writeInt(value);
+    }
+
+    @Override
+    public void install(SnapshotReader reader) {
+      value = reader.readInt();
+    }
+  }
+}
@@ -0,0 +1,166 @@
+package com.xiantrimble.dropwizard.copycat;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+
+import org.junit.Test;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import io.atomix.catalyst.buffer.Buffer;
+import io.atomix.catalyst.buffer.BufferInput;
+import io.atomix.catalyst.buffer.BufferOutput;
+import io.atomix.catalyst.buffer.HeapBuffer;
+import io.atomix.catalyst.serializer.CatalystSerializable;
+import io.atomix.catalyst.serializer.Serializer;
+import io.atomix.copycat.Query;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+/**
+ * Tests for recording the sizes of serialized values.
+ *
+ * @author Christian Trimble
+ */
+public class SerializedSizesTest {
+  MetricRegistry metrics = new MetricRegistry();
+  SerializedSizes sizes = new SerializedSizes();
+
+  @Test
+  public void measuresOperations() {
+    sizes.setMetrics(metrics);
+    Serializer serializer = sizes.instrument(new Serializer());
+
+    MapMachine.TestPut put = new MapMachine.TestPut("key", "value");
+    Buffer buffer = serializer.writeObject(put).flip();
+    long written = buffer.remaining();
+    MapMachine.TestPut read = serializer.readObject(buffer);
+
+    assertThat(read.key(), equalTo("key"));
+    Histogram histogram = histogram(MapMachine.TestPut.class);
+    assertThat(histogram.getCount(), equalTo(1L));
+    assertThat(histogram.getSnapshot().getMax(), greaterThan(0L));
+    assertThat(histogram.getSnapshot().getMax() < written, equalTo(true));
+  }
+
+  @Test
+  public void writesWholeValuesToNettyOutputs() throws Exception {
+    sizes.setMetrics(metrics);
+    Serializer serializer = sizes.instrument(new Serializer());
+    ByteBuf byteBuf = Unpooled.buffer(8);
+
+    serializer.writeObject(new MapMachine.TestPut("key", "value"), nettyOutput(byteBuf));
+    byte[] bytes = new byte[byteBuf.readableBytes()];
+    byteBuf.readBytes(bytes);
+    MapMachine.TestPut read = serializer.readObject(HeapBuffer.wrap(bytes));
+
+    assertThat(read.value(), equalTo("value"));
+  }
+
+  @Test
+  public void measuresNettyOutputsLikeBuffers() throws Exception {
+    sizes.setMetrics(metrics);
+    Serializer serializer = sizes.instrument(new Serializer());
+
+    serializer.writeObject(new MapMachine.TestPut("key", "value"), nettyOutput(Unpooled.buffer(8)));
+    serializer.writeObject(new MapMachine.TestPut("key", "value"));
+
+    Histogram histogram = histogram(MapMachine.TestPut.class);
+    assertThat(histogram.getCount(), equalTo(2L));
+    assertThat(histogram.getSnapshot().getMin(), equalTo(histogram.getSnapshot().getMax()));
+  }
+
+  @Test
+  public void measuresClonedSerializers() {
+    sizes.setMetrics(metrics);
+    Serializer serializer = sizes.instrument(new Serializer()).clone();
+
+    serializer.writeObject(new MapMachine.TestGet("key", Query.ConsistencyLevel.SEQUENTIAL));
+
+    assertThat(histogram(MapMachine.TestGet.class).getCount(), equalTo(1L));
+  }
+
+  @Test
+  public void measuresRegisteredFactories() {
+    sizes.setMetrics(metrics);
+    Serializer serializer = new Serializer();
+    serializer.registerAbstract(JsonNode.class, sizes.measure(new SmileTypeSerializerFactory()));
+    ObjectNode node = JsonNodeFactory.instance.objectNode().put("name", "value");
+
+    Buffer buffer = serializer.allocate();
+    serializer.writeObject(node, buffer);
+    serializer.writeObject("after", buffer);
+    buffer.flip();
+
+    assertThat(serializer.readObject(buffer), equalTo(node));
+    assertThat(serializer.readObject(buffer), equalTo("after"));
+    assertThat(histogram(ObjectNode.class).getCount(), equalTo(1L));
+  }
+
+  @Test
+  public void measuresNestedValues() {
+    sizes.setMetrics(metrics);
+    Serializer serializer = sizes.instrument(new Serializer());
+
+    Buffer buffer = serializer.writeObject(new Entry(new MapMachine.TestPut("key", "value"))).flip();
+    Entry entry = serializer.readObject(buffer);
+
+    assertThat(entry.put.key(), equalTo("key"));
+    assertThat(histogram(MapMachine.TestPut.class).getCount(), equalTo(1L));
+    assertThat(histogram(Entry.class).getSnapshot().getMax(), greaterThan(histogram(MapMachine.TestPut.class).getSnapshot().getMax()));
+  }
+
+  @Test
+  public void skipsMeasuringWithoutMetrics() {
+    Serializer serializer = sizes.instrument(new Serializer());
+
+    serializer.writeObject(new MapMachine.TestPut("key", "value"));
+
+    assertThat(metrics.getHistograms().isEmpty(), equalTo(true));
+  }
+
+  public static class Entry implements CatalystSerializable {
+    MapMachine.TestPut put;
+
+    public Entry() {
+    }
+
+    Entry(MapMachine.TestPut put) {
+      this.put = put;
+    }
+
+    @Override
+    public void writeObject(BufferOutput<?> buffer, Serializer serializer) {
+      serializer.writeObject(put, buffer);
+    }
+
+    @Override
+    public void readObject(BufferInput<?> buffer, Serializer serializer) {
+      put = serializer.readObject(buffer);
+    }
+  }
+
+  /**
+   * Returns the output Netty connections write messages to, which Catalyst keeps package private.
+   */
+  static BufferOutput<?> nettyOutput(ByteBuf byteBuf) throws Exception {
+    Class<?> type = Class.forName("io.atomix.catalyst.transport.netty.ByteBufOutput");
+    Constructor<?> constructor = type.getDeclaredConstructor();
+    constructor.setAccessible(true);
+    Method setByteBuf = type.getDeclaredMethod("setByteBuf", ByteBuf.class);
+    setByteBuf.setAccessible(true);
+    return (BufferOutput<?>) setByteBuf.invoke(constructor.newInstance(), byteBuf);
+  }
+
+  Histogram histogram(Class<?> type) {
+    return metrics.histogram(MetricRegistry.name(SerializedSizes.PREFIX, type.getName(), "bytes"));
+  }
+}
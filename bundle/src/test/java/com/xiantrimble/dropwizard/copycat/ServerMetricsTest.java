@@ -0,0 +1,99 @@
+package com.xiantrimble.dropwizard.copycat;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+import io.atomix.catalyst.transport.Address;
+import io.atomix.copycat.client.CopycatClient;
+import io.atomix.copycat.server.CopycatServer;
+
+/**
+ * Tests for the Raft state gauges of a server.
+ *
+ * @author Christian Trimble
+ */
+public class ServerMetricsTest {
+  public @Rule CopycatClusterRule<MapMachine.TestStateMachine> clusterRule = CopycatClusterRule.<MapMachine.TestStateMachine>builder()
+      .withStateMachineSupplier(MapMachine.TestStateMachine::new)
+      .build();
+
+  @Test
+  public void reportsFollowersOnTheLeader() throws Throwable {
+    CopycatClient client = clusterRule.createClient();
+    client.submit(new MapMachine.TestPut("key", "value")).get(10, TimeUnit.SECONDS);
+
+    int leader = serverIn(CopycatServer.State.LEADER);
+    MetricRegistry metrics = register(leader);
+
+    assertThat((Long) value(metrics, "term"), greaterThan(0L));
+    assertThat(value(metrics, "role"), equalTo("LEADER"));
+    assertThat((Long) value(metrics, "commit-index"), greaterThan(0L));
+    for (Address follower : followers(leader)) {
+      assertThat(value(metrics, member(follower, "match-index")), notNullValue());
+      assertThat((Long) value(metrics, member(follower, "lag-entries")) >= 0, equalTo(true));
+    }
+  }
+
+  @Test
+  public void reportsNoFollowersOnFollowers() throws Throwable {
+    CopycatClient client = clusterRule.createClient();
+    client.submit(new MapMachine.TestPut("key", "value")).get(10, TimeUnit.SECONDS);
+
+    int follower = serverIn(CopycatServer.State.FOLLOWER);
+    MetricRegistry metrics = register(follower);
+
+    assertThat(value(metrics, "role"), equalTo("FOLLOWER"));
+    for (Address other : followers(follower)) {
+      assertThat(value(metrics, member(other, "match-index")), nullValue());
+      assertThat(value(metrics, member(other, "lag-ms")), nullValue());
+    }
+  }
+
+  MetricRegistry register(int server) {
+    MetricRegistry metrics = new MetricRegistry();
+    new ServerMetrics(metrics).register(clusterRule.getServers().get(server), address(server), addresses());
+    return metrics;
+  }
+
+  int serverIn(CopycatServer.State state) {
+    List<CopycatServer> servers = clusterRule.getServers();
+    for (int i = 0; i < servers.size(); i++) {
+      if (servers.get(i).state() == state) {
+        return i;
+      }
+    }
+    throw new IllegalStateException("no server is " + state);
+  }
+
+  Address address(int server) {
+    return clusterRule.getMembers().get(server).serverAddress();
+  }
+
+  List<Address> addresses() {
+    return clusterRule.getMembers().stream().map(member -> member.serverAddress()).collect(Collectors.toList());
+  }
+
+  List<Address> followers(int server) {
+    return addresses().stream().filter(address -> !address.equals(address(server))).collect(Collectors.toList());
+  }
+
+  static String member(Address address, String metric) {
+    return MetricRegistry.name("members", address.host() + ":" + address.port(), metric);
+  }
+
+  static Object value(MetricRegistry metrics, String name) {
+    return metrics.getGauges().get(MetricRegistry.name(ServerMetrics.PREFIX, name)).getValue();
+  }
+}
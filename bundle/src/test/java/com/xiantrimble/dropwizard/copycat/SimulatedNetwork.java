@@ -0,0 +1,394 @@
+package com.xiantrimble.dropwizard.copycat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import io.atomix.catalyst.buffer.Buffer;
+import io.atomix.catalyst.concurrent.Futures;
+import io.atomix.catalyst.concurrent.Listener;
+import io.atomix.catalyst.concurrent.ThreadContext;
+import io.atomix.catalyst.transport.Address;
+import io.atomix.catalyst.transport.Client;
+import io.atomix.catalyst.transport.Connection;
+import io.atomix.catalyst.transport.Server;
+import io.atomix.catalyst.transport.Transport;
+import io.atomix.catalyst.transport.TransportException;
+
+/**
+ * Simulates the network between the members of a test cluster, on top of another transport.
+ * Messages on each link are delayed by its latency and a random jitter, queued behind each other
+ * when the link has a bandwidth cap, and delayed by a retransmission when they are lost, like a TCP
+ * connection.  Links between partitioned members fail.
+ *
+ * A server's transport learns its address when the server listens, and connections it opens are
+ * links from that address.  Connections from clients, and the responses of servers to them, use
+ * a null address for the client end.  Pass {@link #transports(Supplier)} to the cluster rule:
+ *
+ * <pre>
+ * SimulatedNetwork network = new SimulatedNetwork(SimulatedNetwork.Link.latency(Duration.ofMillis(2)));
+ * CopycatClusterRule.builder().withTransportSupplier(network.transports(CopycatClusterRule.DEFAULT_TRANSPORT_SUPPLIER.get()));
+ * </pre>
+ *
+ * Messages are delayed on the Catalyst thread that sent them, so connections used from other
+ * threads are not delayed.
+ *
+ * @author Christian Trimble
+ */
+public class SimulatedNetwork {
+
+  /**
+   * The conditions of one direction of a link.
+   */
+  public static class Link {
+    public static final Link NONE = new Link(Duration.ZERO, Duration.ZERO, 0, 0, Duration.ofMillis(200));
+
+    private final Duration latency;
+    private final Duration jitter;
+    private final long bandwidth;
+    private final double loss;
+    private final Duration retransmit;
+
+    Link(Duration latency, Duration jitter, long bandwidth, double loss, Duration retransmit) {
+      this.latency = latency;
+      this.jitter = jitter;
+      this.bandwidth = bandwidth;
+      this.loss = loss;
+      this.retransmit = retransmit;
+    }
+
+    public static Link latency(Duration latency) {
+      return NONE.withLatency(latency);
+    }
+
+    public Link withLatency(Duration latency) {
+      return new Link(latency, jitter, bandwidth, loss, retransmit);
+    }
+
+    /**
+     * Adds a random delay of up to the jitter to each message.
+     */
+    public Link withJitter(Duration jitter) {
+      return new Link(latency, jitter, bandwidth, loss, retransmit);
+    }
+
+    /**
+     * Caps the link at the bytes per second, or removes the cap when zero.
+     */
+    public Link withBandwidth(long bandwidth) {
+      return new Link(latency, jitter, bandwidth, loss, retransmit);
+    }
+
+    /**
+     * Loses the fraction of messages, each of which is delivered after the retransmission delay.
+     */
+    public Link withLoss(double loss, Duration retransmit) {
+      return new Link(latency, jitter, bandwidth, loss, retransmit);
+    }
+
+    public Duration getLatency() {
+      return latency;
+    }
+
+    public Duration getJitter() {
+      return jitter;
+    }
+
+    public long getBandwidth() {
+      return bandwidth;
+    }
+
+    public double getLoss() {
+      return loss;
+    }
+
+    public Duration getRetransmit() {
+      return retransmit;
+    }
+  }
+
+  /**
+   * The messages in flight on one direction of a link.
+   */
+  static class Channel {
+    long free;
+    long delivered;
+  }
+
+  private final Map<List<Address>, Link> links = new HashMap<>();
+  private final Map<List<Address>, Channel> channels = new HashMap<>();
+  private final List<Set<Address>> partitions = new ArrayList<>();
+  private volatile Link defaultLink;
+
+  public SimulatedNetwork(Link defaultLink) {
+    this.defaultLink = defaultLink;
+  }
+
+  public SimulatedNetwork withDefaultLink(Link defaultLink) {
+    this.defaultLink = defaultLink;
+    return this;
+  }
+
+  /**
+   * Sets the conditions of messages from one address to another.  A null address is the client
+   * end of client connections.
+   */
+  public synchronized SimulatedNetwork link(Address from, Address to, Link link) {
+    links.put(Arrays.asList(from, to), link);
+    return this;
+  }
+
+  /**
+   * Sets the conditions of both directions between two addresses.
+   */
+  public SimulatedNetwork links(Address first, Address second, Link link) {
+    return link(first, second, link).link(second, first, link);
+  }
+
+  /**
+   * Splits the network into groups that cannot reach each other.  Addresses outside every group,
+   * including clients, can reach all of them.
+   */
+  @SafeVarargs
+  public final synchronized SimulatedNetwork partition(Collection<Address>... groups) {
+    partitions.clear();
+    for (Collection<Address> group : groups) {
+      partitions.add(new HashSet<>(group));
+    }
+    return this;
+  }
+
+  public synchronized SimulatedNetwork heal() {
+    partitions.clear();
+    return this;
+  }
+
+  /**
+   * Returns the conditions of messages from one address to another, or null when they are
+   * partitioned.
+   */
+  public synchronized Link link(Address from, Address to) {
+    int fromGroup = group(from);
+    int toGroup = group(to);
+    if (fromGroup >= 0 && toGroup >= 0 && fromGroup != toGroup) {
+      return null;
+    }
+    Link link = links.get(Arrays.asList(from, to));
+    return link != null ? link : defaultLink;
+  }
+
+  private int group(Address address) {
+    for (int i = 0; i < partitions.size(); i++) {
+      if (partitions.get(i).contains(address)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the nanoseconds until a message of the size, sent now, is delivered on the link.
+   * Messages on a link are delivered in the order they are sent.
+   */
+  synchronized long delay(Address from, Address to, Link link, long size) {
+    Channel channel = channels.computeIfAbsent(Arrays.asList(from, to), key -> new Channel());
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    long now = System.nanoTime();
+    long sent = now;
+    if (link.bandwidth > 0) {
+      long transmit = size * 1_000_000_000L / link.bandwidth;
+      sent = Math.max(now, channel.free) + transmit;
+      channel.free = sent;
+    }
+    long delivered = sent + link.latency.toNanos();
+    if (!link.jitter.isZero()) {
+      delivered += random.nextLong(link.jitter.toNanos() + 1);
+    }
+    if (link.loss > 0 && random.nextDouble() < link.loss) {
+      delivered += link.retransmit.toNanos();
+    }
+    channel.delivered = Math.max(channel.delivered, delivered);
+    return channel.delivered - now;
+  }
+
+  /**
+   * Returns transports that simulate this network over transports from the supplier.
+   */
+  public Supplier<Transport> transports(Supplier<Transport> transports) {
+    return () -> new SimulatedTransport(transports.get());
+  }
+
+  class SimulatedTransport implements Transport {
+    private final Transport transport;
+    private volatile Address address;
+
+    SimulatedTransport(Transport transport) {
+      this.transport = transport;
+    }
+
+    @Override
+    public Client client() {
+      Client client = transport.client();
+      return new Client() {
+        @Override
+        public CompletableFuture<Connection> connect(Address to) {
+          if (link(address, to) == null || link(to, address) == null) {
+            return Futures.exceptionalFuture(new TransportException("partitioned from " + to));
+          }
+          return client.connect(to).thenApply(connection -> new SimulatedConnection(connection, address, to));
+        }
+
+        @Override
+        public CompletableFuture<Void> close() {
+          return client.close();
+        }
+      };
+    }
+
+    @Override
+    public Server server() {
+      Server server = transport.server();
+      return new Server() {
+        @Override
+        public CompletableFuture<Void> listen(Address address, Consumer<Connection> listener) {
+          SimulatedTransport.this.address = address;
+          return server.listen(address, connection -> listener.accept(new SimulatedConnection(connection, address, null)));
+        }
+
+        @Override
+        public CompletableFuture<Void> close() {
+          return server.close();
+        }
+      };
+    }
+
+    @Override
+    public void close() {
+      transport.close();
+    }
+  }
+
+  class SimulatedConnection implements Connection {
+    private final Connection connection;
+    private final Address from;
+    private final Address to;
+
+    SimulatedConnection(Connection connection, Address from, Address to) {
+      this.connection = connection;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    public CompletableFuture<Void> send(Object message) {
+      ThreadContext context = ThreadContext.currentContext();
+      Link link = link(from, to);
+      if (link == null) {
+        return Futures.exceptionalFuture(new TransportException("partitioned from " + to));
+      }
+      if (context == null) {
+        return connection.send(message);
+      }
+      CompletableFuture<Void> future = new CompletableFuture<>();
+      after(context, delay(from, to, link, message), () -> connection.send(message).whenComplete((result, error) -> {
+        if (error != null) {
+          future.completeExceptionally(error);
+        } else {
+          future.complete(result);
+        }
+      }));
+      return future;
+    }
+
+    @Override
+    public <T, U> CompletableFuture<U> sendAndReceive(T request) {
+      ThreadContext context = ThreadContext.currentContext();
+      Link link = link(from, to);
+      if (link == null) {
+        return Futures.exceptionalFuture(new TransportException("partitioned from " + to));
+      }
+      if (context == null) {
+        return connection.sendAndReceive(request);
+      }
+      CompletableFuture<U> future = new CompletableFuture<>();
+      after(context, delay(from, to, link, request), () -> connection.<T, U>sendAndReceive(request).whenComplete((response, error) -> {
+        Link back = link(to, from);
+        if (back == null) {
+          future.completeExceptionally(new TransportException("partitioned from " + to));
+        } else if (error != null) {
+          after(context, delay(to, from, back, error), () -> future.completeExceptionally(error));
+        } else {
+          after(context, delay(to, from, back, response), () -> future.complete(response));
+        }
+      }));
+      return future;
+    }
+
+    long delay(Address from, Address to, Link link, Object message) {
+      return SimulatedNetwork.this.delay(from, to, link, link.bandwidth > 0 ? size(message) : 0);
+    }
+
+    long size(Object message) {
+      if (message == null) {
+        return 0;
+      }
+      try (Buffer buffer = ThreadContext.currentContextOrThrow().serializer().writeObject(message)) {
+        return buffer.position();
+      } catch (RuntimeException e) {
+        return 0;
+      }
+    }
+
+    void after(ThreadContext context, long nanos, Runnable callback) {
+      if (nanos <= 0) {
+        context.executor().execute(callback);
+      } else {
+        context.schedule(Duration.ofNanos(nanos), callback);
+      }
+    }
+
+    @Override
+    public <T, U> Connection handler(Class<T> type, Consumer<T> handler) {
+      connection.handler(type, handler);
+      return this;
+    }
+
+    @Override
+    public <T, U> Connection handler(Class<T> type, Function<T, CompletableFuture<U>> handler) {
+      connection.handler(type, handler);
+      return this;
+    }
+
+    @Override
+    public Listener<Throwable> onException(Consumer<Throwable> listener) {
+      return connection.onException(listener);
+    }
+
+    @Override
+    public Listener<Connection> onClose(Consumer<Connection> listener) {
+      return connection.onClose(closed -> listener.accept(this));
+    }
+
+    @Override
+    public CompletableFuture<Void> close() {
+      return connection.close();
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s[from=%s, to=%s]", getClass().getSimpleName(), Objects.toString(from), Objects.toString(to));
+    }
+  }
+}
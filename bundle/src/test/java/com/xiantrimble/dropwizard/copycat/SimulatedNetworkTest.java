@@ -0,0 +1,111 @@
+package com.xiantrimble.dropwizard.copycat;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import io.atomix.catalyst.transport.Address;
+import io.atomix.copycat.Query;
+import io.atomix.copycat.client.CopycatClient;
+import io.atomix.copycat.server.CopycatServer;
+import io.atomix.copycat.server.cluster.Member;
+
+/**
+ * Tests for simulating network conditions between the members of a test cluster.
+ *
+ * @author Christian Trimble
+ */
+public class SimulatedNetworkTest {
+  static final Duration LATENCY = Duration.ofMillis(20);
+
+  SimulatedNetwork network = new SimulatedNetwork(SimulatedNetwork.Link.latency(LATENCY));
+
+  public @Rule CopycatClusterRule<MapMachine.TestStateMachine> clusterRule = CopycatClusterRule.<MapMachine.TestStateMachine>builder()
+      .withStateMachineSupplier(MapMachine.TestStateMachine::new)
+      .withTransportSupplier(network.transports(CopycatClusterRule.DEFAULT_TRANSPORT_SUPPLIER.get()))
+      .build();
+
+  @Test
+  public void delaysRoundTrips() throws Throwable {
+    CopycatClient client = clusterRule.createClient();
+
+    long start = System.nanoTime();
+    client.submit(new MapMachine.TestPut("key", "value")).get(10, TimeUnit.SECONDS);
+    long elapsed = System.nanoTime() - start;
+
+    assertThat(elapsed, greaterThanOrEqualTo(2 * LATENCY.toNanos()));
+  }
+
+  @Test
+  public void capsBandwidth() throws Throwable {
+    network.withDefaultLink(SimulatedNetwork.Link.NONE.withBandwidth(10_000));
+    CopycatClient client = clusterRule.createClient();
+    char[] value = new char[2_000];
+    Arrays.fill(value, 'x');
+
+    long start = System.nanoTime();
+    client.submit(new MapMachine.TestPut("key", new String(value))).get(10, TimeUnit.SECONDS);
+    long elapsed = System.nanoTime() - start;
+
+    assertThat(elapsed, greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(200)));
+  }
+
+  @Test
+  public void deliversInOrderWithJitter() throws Throwable {
+    network.withDefaultLink(SimulatedNetwork.Link.latency(Duration.ofMillis(1)).withJitter(Duration.ofMillis(10)));
+    CopycatClient client = clusterRule.createClient();
+
+    for (int i = 0; i < 20; i++) {
+      client.submit(new MapMachine.TestPut("key", "value" + i));
+    }
+
+    assertThat(client.submit(new MapMachine.TestGet("key", Query.ConsistencyLevel.LINEARIZABLE)).get(10, TimeUnit.SECONDS), equalTo("value19"));
+  }
+
+  @Test
+  public void commitsWithAFollowerPartitioned() throws Throwable {
+    CopycatClient client = clusterRule.createClient();
+    client.submit(new MapMachine.TestPut("key", "before")).get(10, TimeUnit.SECONDS);
+
+    Member leader = leader();
+    Address follower = clusterRule.getMembers().stream()
+        .map(Member::serverAddress)
+        .filter(address -> !address.equals(leader.serverAddress()))
+        .findFirst().get();
+    List<Address> majority = clusterRule.getMembers().stream()
+        .map(Member::serverAddress)
+        .filter(address -> !address.equals(follower))
+        .collect(Collectors.toList());
+    network.partition(Arrays.asList(follower), majority);
+
+    assertThat(network.link(follower, leader.serverAddress()), nullValue());
+    assertThat(network.link(null, follower), notNullValue());
+    client.submit(new MapMachine.TestPut("key", "during")).get(10, TimeUnit.SECONDS);
+
+    network.heal();
+
+    assertThat(network.link(follower, leader.serverAddress()), notNullValue());
+    client.submit(new MapMachine.TestPut("key", "after")).get(10, TimeUnit.SECONDS);
+    assertThat(client.submit(new MapMachine.TestGet("key", Query.ConsistencyLevel.LINEARIZABLE)).get(10, TimeUnit.SECONDS), equalTo("after"));
+  }
+
+  Member leader() {
+    for (CopycatServer server : clusterRule.getServers()) {
+      if (server.cluster().leader() != null) {
+        return server.cluster().leader();
+      }
+    }
+    throw new IllegalStateException("the cluster has no leader.");
+  }
+}
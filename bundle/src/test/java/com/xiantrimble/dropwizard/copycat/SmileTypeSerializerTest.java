@@ -0,0 +1,73 @@
+package com.xiantrimble.dropwizard.copycat;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import io.atomix.catalyst.buffer.Buffer;
+import io.atomix.catalyst.serializer.Serializer;
+
+/**
+ * Tests for the Smile type serializer.
+ *
+ * @author Christian Trimble
+ *
+ */
+public class SmileTypeSerializerTest {
+
+  Serializer serializer = new SmileTypeSerializerFactory().register(new Serializer(), JsonNode.class);
+
+  @Test
+  public void roundTripsNodes() {
+    ObjectNode node = record(1);
+
+    Buffer buffer = serializer.writeObject(node).flip();
+    JsonNode result = serializer.readObject(buffer);
+
+    assertThat(result, equalTo(node));
+  }
+
+  @Test
+  public void leavesFollowingValuesReadable() {
+    Buffer buffer = serializer.allocate();
+    serializer.writeObject(record(1), buffer);
+    serializer.writeObject("after", buffer);
+    buffer.flip();
+
+    JsonNode node = serializer.readObject(buffer);
+    String after = serializer.readObject(buffer);
+
+    assertThat(node, equalTo(record(1)));
+    assertThat(after, equalTo("after"));
+  }
+
+  @Test
+  public void sharesRepeatedNamesAndValues() throws Exception {
+    ArrayNode records = JsonNodeFactory.instance.arrayNode();
+    for (int i = 0; i < 100; i++) {
+      records.add(record(i));
+    }
+
+    long smileSize = serializer.writeObject(records).flip().remaining();
+    long jsonSize = new ObjectMapper().writeValueAsBytes(records).length;
+
+    assertThat(smileSize, lessThan(jsonSize / 2));
+  }
+
+  static ObjectNode record(int i) {
+    ObjectNode node = JsonNodeFactory.instance.objectNode();
+    node.put("id", i);
+    node.put("status", "active");
+    node.put("region", "us-east-1");
+    node.putObject("owner").put("name", "copycat").put("team", "platform");
+    return node;
+  }
+}
@@ -0,0 +1,66 @@
+package com.xiantrimble.dropwizard.copycat;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.instanceOf;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+import io.atomix.copycat.Query;
+import io.atomix.copycat.client.CopycatClient;
+import io.atomix.copycat.server.Snapshottable;
+import io.atomix.copycat.server.StateMachine;
+
+/**
+ * Tests for timing the operations of a state machine.
+ *
+ * @author Christian Trimble
+ */
+public class StateMachineMetricsTest {
+  MetricRegistry metrics = new MetricRegistry();
+  StateMachineMetrics stateMachineMetrics = new StateMachineMetrics(metrics);
+
+  public @Rule CopycatClusterRule<StateMachine> clusterRule = CopycatClusterRule.<StateMachine>builder()
+      .withStateMachineSupplier(stateMachineMetrics.instrument(MapMachine.TestStateMachine::new))
+      .build();
+
+  @Test
+  public void timesAppliedOperations() throws Throwable {
+    CopycatClient client = clusterRule.createClient();
+
+    client.submit(new MapMachine.TestPut("key", "value")).get(10, TimeUnit.SECONDS);
+    client.submit(new MapMachine.TestPut("key", "other")).get(10, TimeUnit.SECONDS);
+    client.submit(new MapMachine.TestGet("key", Query.ConsistencyLevel.LINEARIZABLE)).get(10, TimeUnit.SECONDS);
+
+    // commands are applied on every server, but followers may not have applied them yet.
+    assertThat(metrics.timer(name(MapMachine.TestPut.class, "apply")).getCount(), greaterThanOrEqualTo(2L));
+    assertThat(metrics.timer(name(MapMachine.TestGet.class, "apply")).getCount(), equalTo(1L));
+  }
+
+  @Test
+  public void tracksAppliedIndex() throws Throwable {
+    stateMachineMetrics.register(clusterRule.getServers().get(0));
+    CopycatClient client = clusterRule.createClient();
+
+    client.submit(new MapMachine.TestPut("key", "value")).get(10, TimeUnit.SECONDS);
+
+    assertThat((Long) metrics.getGauges().get(MetricRegistry.name(StateMachineMetrics.PREFIX, "last-applied")).getValue(), greaterThan(0L));
+    assertThat((Long) metrics.getGauges().get(MetricRegistry.name(StateMachineMetrics.PREFIX, "backlog")).getValue() >= 0, equalTo(true));
+  }
+
+  @Test
+  public void keepsStateMachinesSnapshottable() {
+    assertThat(stateMachineMetrics.instrument(MapMachine.TestStateMachine::new).get(), instanceOf(Snapshottable.class));
+  }
+
+  static String name(Class<?> type, String metric) {
+    return MetricRegistry.name(StateMachineMetrics.PREFIX, type.getName(), metric);
+  }
+}
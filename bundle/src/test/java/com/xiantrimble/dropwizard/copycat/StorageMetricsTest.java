@@ -0,0 +1,98 @@
+package com.xiantrimble.dropwizard.copycat;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+import io.atomix.copycat.client.CopycatClient;
+import io.atomix.copycat.server.CopycatServer;
+import io.atomix.copycat.server.CopycatServerAccess;
+import io.atomix.copycat.server.storage.compaction.Compaction;
+
+/**
+ * Tests for the log usage metrics of a server.
+ *
+ * @author Christian Trimble
+ */
+public class StorageMetricsTest {
+  public static final String STORAGE_DIR = "target/storage-metrics-test";
+
+  public @Rule CopycatClusterRule<MapMachine.TestStateMachine> clusterRule = CopycatClusterRule.<MapMachine.TestStateMachine>builder()
+      .withStateMachineSupplier(MapMachine.TestStateMachine::new)
+      .withDirectoryStorage(STORAGE_DIR)
+      .build();
+
+  @Test
+  public void reportsLogUsage() throws Throwable {
+    CopycatClient client = clusterRule.createClient();
+    client.submit(new MapMachine.TestPut("key", "value")).get(10, TimeUnit.SECONDS);
+
+    MetricRegistry metrics = new MetricRegistry();
+    try( StorageMetrics storage = new StorageMetrics(metrics) ) {
+      storage.register(clusterRule.getServers().get(0), directory(0), new StorageConfiguration());
+
+      assertThat((Integer) value(metrics, "segments"), greaterThan(0));
+      assertThat((Long) value(metrics, "disk-bytes"), greaterThan(0L));
+      assertThat((Long) value(metrics, "mapped-bytes"), equalTo(0L));
+    }
+    assertThat(metrics.getTimers().keySet(), not(hasItem(MetricRegistry.name(StorageMetrics.PREFIX, "compaction", "minor"))));
+    assertThat(metrics.getHistograms().keySet(), not(hasItem(MetricRegistry.name(StorageMetrics.PREFIX, "compaction", "reclaimed-bytes"))));
+  }
+
+  @Test
+  public void timesCompactions() throws Throwable {
+    CopycatClient client = clusterRule.createClient();
+    for (int i = 0; i < 10; i++) {
+      client.submit(new MapMachine.TestPut("key", "value" + i)).get(10, TimeUnit.SECONDS);
+    }
+
+    MetricRegistry metrics = new MetricRegistry();
+    CopycatServer server = clusterRule.getServers().get(0);
+    try( StorageMetrics storage = new StorageMetrics(metrics) ) {
+      storage.compact(CopycatServerAccess.context(server).getLog(), Compaction.MINOR, directory(0)).get(10, TimeUnit.SECONDS);
+      storage.compact(CopycatServerAccess.context(server).getLog(), Compaction.MAJOR, directory(0)).get(10, TimeUnit.SECONDS);
+    }
+
+    assertThat(metrics.timer(MetricRegistry.name(StorageMetrics.PREFIX, "compaction", "minor")).getCount(), equalTo(1L));
+    assertThat(metrics.timer(MetricRegistry.name(StorageMetrics.PREFIX, "compaction", "major")).getCount(), equalTo(1L));
+    assertThat(metrics.histogram(MetricRegistry.name(StorageMetrics.PREFIX, "compaction", "reclaimed-bytes")).getCount(), equalTo(2L));
+  }
+
+  @Test
+  public void probesTheDisk() throws Throwable {
+    MetricRegistry metrics = new MetricRegistry();
+    try( StorageMetrics storage = new StorageMetrics(metrics) ) {
+      storage.probe(directory(0));
+      storage.probe(directory(0));
+    }
+
+    assertThat(metrics.timer(MetricRegistry.name(StorageMetrics.PREFIX, "fsync")).getCount(), equalTo(2L));
+    assertThat(new File(directory(0), StorageMetrics.PROBE_FILE).length(), equalTo((long) StorageMetrics.PROBE_SIZE));
+  }
+
+  @Test
+  public void readsSegmentIds() {
+    assertThat(StorageMetrics.segmentId("copycat-12-3.log"), equalTo(12L));
+    assertThat(StorageMetrics.segmentId("copycat-partition-1-12-3.log"), equalTo(12L));
+    assertThat(StorageMetrics.segmentId("copycat-12-3.snapshot"), equalTo(-1L));
+    assertThat(StorageMetrics.segmentId("copycat.log"), equalTo(-1L));
+  }
+
+  static File directory(int server) {
+    return new File(STORAGE_DIR, "server_" + server);
+  }
+
+  static Object value(MetricRegistry metrics, String name) {
+    return metrics.getGauges().get(MetricRegistry.name(StorageMetrics.PREFIX, name)).getValue();
+  }
+}
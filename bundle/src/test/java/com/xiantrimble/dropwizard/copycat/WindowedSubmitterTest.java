@@ -0,0 +1,54 @@
+package com.xiantrimble.dropwizard.copycat;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import io.atomix.copycat.Query;
+import io.atomix.copycat.client.CopycatClient;
+
+/**
+ * Tests for keeping a window of commands in flight.
+ *
+ * @author Christian Trimble
+ */
+public class WindowedSubmitterTest {
+  public @Rule CopycatClusterRule<MapMachine.TestStateMachine> clusterRule = CopycatClusterRule.<MapMachine.TestStateMachine>builder()
+      .withStateMachineSupplier(MapMachine.TestStateMachine::new)
+      .build();
+
+  @Test
+  public void keepsCommandsWithinTheWindow() throws Throwable {
+    CopycatClient client = clusterRule.createClient();
+    WindowedSubmitter submitter = new WindowedSubmitter(client, 4);
+
+    for (int i = 0; i < 100; i++) {
+      submitter.submit(new MapMachine.TestPut("key", "value" + i));
+      assertThat(submitter.outstanding(), lessThanOrEqualTo(4));
+    }
+    submitter.flush();
+
+    assertThat(submitter.outstanding(), equalTo(0));
+    assertThat(client.submit(new MapMachine.TestGet("key", Query.ConsistencyLevel.LINEARIZABLE)).get(10, TimeUnit.SECONDS), equalTo("value99"));
+  }
+
+  @Test(expected = CompletionException.class)
+  public void flushFailsAfterAFailedCommand() throws Throwable {
+    WindowedSubmitter submitter = new WindowedSubmitter(clusterRule.createClient(), 4);
+
+    // the map machine has no callback for keyed puts.
+    submitter.submit(new KeyedMachine.TestPut("key", "value"));
+    submitter.flush();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsAnEmptyWindow() throws Throwable {
+    new WindowedSubmitter(clusterRule.createClient(), 0);
+  }
+}
@@ -24,13 +24,11 @@ import javax.inject.Inject;
 import javax.inject.Singleton;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.inject.Stage;
 import com.hubspot.dropwizard.guice.GuiceBundle;
 
 import io.atomix.catalyst.serializer.Serializer;
-import io.atomix.catalyst.serializer.jackson.GenericJacksonSerializer;
+import io.atomix.catalyst.serializer.util.CatalystSerializableSerializer;
 import io.atomix.copycat.server.CopycatServer;
 import io.dropwizard.Application;
 import io.dropwizard.lifecycle.Managed;
@@ -60,17 +58,21 @@ public class CopycatExampleApplication extends Application<CopycatExampleConfigu
     return COMMAND_NAME;
   }
 
+  /**
+   * The commands that write themselves are registered with their own serializers.  Otherwise
+   * Catalyst picks between its Catalyst and Java serializers by which it used most recently, and
+   * Java serialization fails on their JSON values.
+   */
   @Override
   public void initialize(Bootstrap<CopycatExampleConfiguration> bootstrap) {
     bootstrap.addBundle(bundle =
         CopycatBundle.<CopycatExampleConfiguration> builder()
             .withConfiguration(CopycatExampleConfiguration::getCopycat)
-            .withStateMachineSupplier(ExampleStateMachine::new)
+            .withInjectedStateMachine()
             .withSerializer(new Serializer()
-              .register(JsonNode.class, GenericJacksonSerializer.class)
-              .register(ObjectNode.class, GenericJacksonSerializer.class)
-              .register(ArrayNode.class, GenericJacksonSerializer.class)
-              )
+                .register(ExampleStateMachine.SetValue.class, type -> new CatalystSerializableSerializer<>())
+                .register(ExampleStateMachine.MultiSetValue.class, type -> new CatalystSerializableSerializer<>()))
+            .withSmileTypes(JsonNode.class)
             .build());
 
     GuiceBundle.Builder<CopycatExampleConfiguration> builder =
@@ -15,6 +15,10 @@
  */
 package com.xiantrimble.dropwizard.copycat.example;
 
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
 import com.xiantrimble.dropwizard.copycat.CopycatConfiguration;
 
 import io.dropwizard.Configuration;
@@ -31,4 +35,43 @@ public class CopycatExampleConfiguration extends Configuration {
     this.copycat = copycat;
   }
 
+  @Valid
+  @NotNull
+  private KeysConfiguration keys = new KeysConfiguration();
+
+  public KeysConfiguration getKeys() {
+    return keys;
+  }
+
+  public void setKeys(KeysConfiguration keys) {
+    this.keys = keys;
+  }
+
+  /**
+   * The paging of key listings.  A listing returns at most pageSize keys, unless the request
+   * asks for another limit, and never more than maxPageSize.
+   */
+  public static class KeysConfiguration {
+    @Min(1)
+    private int pageSize = 1000;
+    @Min(1)
+    private int maxPageSize = 10000;
+
+    public int getPageSize() {
+      return pageSize;
+    }
+
+    public void setPageSize(int pageSize) {
+      this.pageSize = pageSize;
+    }
+
+    public int getMaxPageSize() {
+      return maxPageSize;
+    }
+
+    public void setMaxPageSize(int maxPageSize) {
+      this.maxPageSize = maxPageSize;
+    }
+  }
+
 }
\ No newline at end of file
@@ -15,6 +15,9 @@
  */
 package com.xiantrimble.dropwizard.copycat.example;
 
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.function.Supplier;
 
 import javax.inject.Singleton;
@@ -22,7 +25,15 @@ import javax.inject.Singleton;
 import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
 import com.google.inject.TypeLiteral;
+import com.xiantrimble.dropwizard.copycat.ClientConfiguration;
+import com.xiantrimble.dropwizard.copycat.CommandBatcher;
+import com.xiantrimble.dropwizard.copycat.CopycatClientPool;
+import com.xiantrimble.dropwizard.copycat.CopycatConfiguration;
+import com.xiantrimble.dropwizard.copycat.CopycatPartitions;
+import com.xiantrimble.dropwizard.copycat.example.ExampleStateMachine.MultiSetValue;
+import com.xiantrimble.dropwizard.copycat.example.ExampleStateMachine.SetValue;
 
+import io.atomix.copycat.client.CopycatClient;
 import io.atomix.copycat.server.StateMachine;
 
 public class CopycatExampleModule extends AbstractModule {
@@ -42,5 +53,26 @@ public class CopycatExampleModule extends AbstractModule {
   public Supplier<StateMachine> providesStateMachine( Supplier<ExampleStateMachine> supplier ) {
 	  return supplier::get;
   }
+  
+  /**
+   * Provides a set batcher for each command session of every partition, by session.
+   */
+  @Provides
+  @Singleton
+  public Map<CopycatClient, CommandBatcher<SetValue, Void>> providesSetValueBatchers( CopycatPartitions partitions, CopycatConfiguration configuration ) {
+	  ClientConfiguration clientConfiguration = configuration.getClient();
+	  Map<CopycatClient, CommandBatcher<SetValue, Void>> batchers = new LinkedHashMap<>();
+	  for( CopycatClientPool pool : partitions.getPools() ) {
+		  for( CopycatClient client : pool.getClients() ) {
+			  batchers.put(client, CommandBatcher.<SetValue, Void>builder()
+					  .withClient(client)
+					  .withBatch(MultiSetValue::new)
+					  .withMaxSize(clientConfiguration.getBatchSize())
+					  .withWindow(Duration.ofNanos(clientConfiguration.getBatchWindow().toNanoseconds()))
+					  .build());
+		  }
+	  }
+	  return batchers;
+  }
 
 }
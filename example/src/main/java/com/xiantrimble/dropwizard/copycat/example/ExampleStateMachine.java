@@ -15,12 +15,16 @@
  */
 package com.xiantrimble.dropwizard.copycat.example;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.TreeMap;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.google.common.collect.Maps;
 
 import io.atomix.catalyst.buffer.BufferInput;
 import io.atomix.catalyst.buffer.BufferOutput;
@@ -29,38 +33,126 @@ import io.atomix.catalyst.serializer.Serializer;
 import io.atomix.copycat.Command;
 import io.atomix.copycat.Query;
 import io.atomix.copycat.server.Commit;
+import io.atomix.copycat.server.Snapshottable;
 import io.atomix.copycat.server.StateMachine;
 import io.atomix.copycat.server.StateMachineExecutor;
+import io.atomix.copycat.server.storage.snapshot.SnapshotReader;
+import io.atomix.copycat.server.storage.snapshot.SnapshotWriter;
 
 /**
- * An example state machine.
+ * An example state machine.  Values are snapshotted one entry at a time, so the log can be
+ * compacted and a restart only has to install the live values.  Values are kept in key order, so
+ * keys can be listed a range or a page at a time.
+ * 
  * @author Christian Trimble
  *
  */
-public class ExampleStateMachine extends StateMachine {
+public class ExampleStateMachine extends StateMachine implements Snapshottable {
 	private static ObjectMapper mapper = new ObjectMapper();
 
-	Map<String, JsonNode> values = Maps.newHashMap();
+	NavigableMap<String, JsonNode> values = new TreeMap<>();
 	
 	Runnable update;
 	
 	@Override
 	public void configure(StateMachineExecutor executor) {
 		executor.register(SetValue.class, this::set);
+		executor.register(MultiSetValue.class, this::setAll);
+		executor.register(DeleteValue.class, this::delete);
+		executor.register(MultiDeleteValue.class, this::deleteAll);
 		executor.register(GetValue.class, this::get);
-		executor.register(GetKeys.class, this::keySet);
+		executor.register(MultiGetValue.class, this::getAll);
+		executor.register(GetKeys.class, this::keys);
 	}
 	
 	public void set( Commit<SetValue> command ) {
-		values.put(command.operation().getKey(), command.operation().getNode());
+		try {
+			values.put(command.operation().getKey(), command.operation().getNode());
+		} finally {
+			command.release();
+		}
+	}
+	
+	public List<Void> setAll( Commit<MultiSetValue> command ) {
+		try {
+			for( SetValue set : command.operation().getValues() ) {
+				values.put(set.getKey(), set.getNode());
+			}
+			return null;
+		} finally {
+			command.release();
+		}
+	}
+	
+	public void delete( Commit<DeleteValue> command ) {
+		try {
+			values.remove(command.operation().getKey());
+		} finally {
+			command.release();
+		}
+	}
+	
+	public void deleteAll( Commit<MultiDeleteValue> command ) {
+		try {
+			for( String key : command.operation().getKeys() ) {
+				values.remove(key);
+			}
+		} finally {
+			command.release();
+		}
 	}
 	
 	public JsonNode get( Commit<GetValue> query ) {
-		return values.get(query.operation().getKey());
+		try {
+			return values.get(query.operation().getKey());
+		} finally {
+			query.release();
+		}
 	}
 	
-	public Set<String> keySet( Commit<GetKeys> query ) {
-		return values.keySet();
+	/**
+	 * Returns the values of the keys that are set.
+	 */
+	public Map<String, JsonNode> getAll( Commit<MultiGetValue> query ) {
+		try {
+			Map<String, JsonNode> found = new HashMap<>();
+			for( String key : query.operation().getKeys() ) {
+				JsonNode value = values.get(key);
+				if( value != null ) {
+					found.put(key, value);
+				}
+			}
+			return found;
+		} finally {
+			query.release();
+		}
+	}
+	
+	public List<String> keys( Commit<GetKeys> query ) {
+		try {
+			return query.operation().select(values.navigableKeySet());
+		} finally {
+			query.release();
+		}
+	}
+
+	@Override
+	public void snapshot(SnapshotWriter writer) {
+		writer.writeInt(values.size());
+		for( Map.Entry<String, JsonNode> entry : values.entrySet() ) {
+			writer.writeString(entry.getKey());
+			writer.writeObject(entry.getValue());
+		}
+	}
+
+	@Override
+	public void install(SnapshotReader reader) {
+		int size = reader.readInt();
+		NavigableMap<String, JsonNode> installed = new TreeMap<>();
+		for( int i = 0; i < size; i++ ) {
+			installed.put(reader.readString(), reader.readObject());
+		}
+		values = installed;
 	}
 	
 	public static class SetValue implements Command<Void>, CatalystSerializable {
@@ -101,8 +193,89 @@ public class ExampleStateMachine extends StateMachine {
 		}
     }
 	
+	/**
+	 * Sets several values in one commit.
+	 */
+	public static class MultiSetValue implements Command<List<Void>>, CatalystSerializable {
+		private static final long serialVersionUID = 1L;
+		private List<SetValue> values;
+		public MultiSetValue() {
+		}
+		public MultiSetValue( List<SetValue> values ) {
+			this.values = values;
+		}
+		public List<SetValue> getValues() {
+			return values;
+		}
+		public void setValues( List<SetValue> values ) {
+			this.values = values;
+		}
+
+		@Override
+		public void readObject(BufferInput<?> input, Serializer serializer) {
+			int size = input.readInt();
+			values = new ArrayList<>(size);
+			for( int i = 0; i < size; i++ ) {
+				SetValue value = new SetValue();
+				value.readObject(input, serializer);
+				values.add(value);
+			}
+		}
+
+		@Override
+		public void writeObject(BufferOutput<?> output, Serializer serializer) {
+			output.writeInt(values.size());
+			for( SetValue value : values ) {
+				value.writeObject(output, serializer);
+			}
+		}
+	}
+	
+	public static class DeleteValue implements Command<Void> {
+		private static final long serialVersionUID = 1L;
+		private String key;
+		public String getKey() {
+			return key;
+		}
+		public void setKey(String key) {
+			this.key = key;
+		}
+		public DeleteValue withKey( String key ) {
+			this.key = key;
+			return this;
+		}
+	}
+	
+	/**
+	 * Deletes several keys in one commit.
+	 */
+	public static class MultiDeleteValue implements Command<Void> {
+		private static final long serialVersionUID = 1L;
+		private List<String> keys;
+		public MultiDeleteValue() {
+		}
+		public MultiDeleteValue( List<String> keys ) {
+			this.keys = keys;
+		}
+		public List<String> getKeys() {
+			return keys;
+		}
+		public void setKeys( List<String> keys ) {
+			this.keys = keys;
+		}
+	}
+	
 	public static class GetValue implements Query<JsonNode> {
 		private static final long serialVersionUID = 1L;
+		private ConsistencyLevel consistency;
+		@Override
+		public ConsistencyLevel consistency() {
+			return consistency;
+		}
+		public GetValue withConsistency( ConsistencyLevel consistency ) {
+			this.consistency = consistency;
+			return this;
+		}
 		public String getKey() {
 			return key;
 		}
@@ -116,8 +289,141 @@ public class ExampleStateMachine extends StateMachine {
 		private String key;
 	}
 	
-	public static class GetKeys implements Query<Set<String>> {
+	/**
+	 * Reads several keys in one query.
+	 */
+	public static class MultiGetValue implements Query<Map<String, JsonNode>> {
 		private static final long serialVersionUID = 1L;
+		private ConsistencyLevel consistency;
+		private List<String> keys;
+		public MultiGetValue() {
+		}
+		public MultiGetValue( List<String> keys ) {
+			this.keys = keys;
+		}
+		@Override
+		public ConsistencyLevel consistency() {
+			return consistency;
+		}
+		public MultiGetValue withConsistency( ConsistencyLevel consistency ) {
+			this.consistency = consistency;
+			return this;
+		}
+		public List<String> getKeys() {
+			return keys;
+		}
+		public void setKeys( List<String> keys ) {
+			this.keys = keys;
+		}
+	}
+	
+	/**
+	 * Lists keys in order.  The keys can be limited to those with a prefix, to those from a start
+	 * key up to an end key, and to those after a cursor, which is the last key of the previous
+	 * page.  At most limit keys are returned, when a limit is set.
+	 */
+	public static class GetKeys implements Query<List<String>> {
+		private static final long serialVersionUID = 1L;
+		private ConsistencyLevel consistency;
+		private String prefix;
+		private String start;
+		private String end;
+		private String after;
+		private Integer limit;
+		@Override
+		public ConsistencyLevel consistency() {
+			return consistency;
+		}
+		public GetKeys withConsistency( ConsistencyLevel consistency ) {
+			this.consistency = consistency;
+			return this;
+		}
+		public String getPrefix() {
+			return prefix;
+		}
+		public void setPrefix( String prefix ) {
+			this.prefix = prefix;
+		}
+		public GetKeys withPrefix( String prefix ) {
+			this.prefix = prefix;
+			return this;
+		}
+		/**
+		 * The first key to list, inclusive.
+		 */
+		public String getStart() {
+			return start;
+		}
+		public void setStart( String start ) {
+			this.start = start;
+		}
+		public GetKeys withStart( String start ) {
+			this.start = start;
+			return this;
+		}
+		/**
+		 * The key to stop listing at, exclusive.
+		 */
+		public String getEnd() {
+			return end;
+		}
+		public void setEnd( String end ) {
+			this.end = end;
+		}
+		public GetKeys withEnd( String end ) {
+			this.end = end;
+			return this;
+		}
+		/**
+		 * The cursor to continue listing after, exclusive.
+		 */
+		public String getAfter() {
+			return after;
+		}
+		public void setAfter( String after ) {
+			this.after = after;
+		}
+		public GetKeys withAfter( String after ) {
+			this.after = after;
+			return this;
+		}
+		public Integer getLimit() {
+			return limit;
+		}
+		public void setLimit( Integer limit ) {
+			this.limit = limit;
+		}
+		public GetKeys withLimit( Integer limit ) {
+			this.limit = limit;
+			return this;
+		}
+		
+		/**
+		 * Returns the selected keys of a sorted set, in order.  Only the selected keys, and the key
+		 * that ends the selection, are visited.
+		 */
+		public List<String> select( NavigableSet<String> keys ) {
+			String from = start;
+			if( prefix != null && (from == null || prefix.compareTo(from) > 0) ) {
+				from = prefix;
+			}
+			NavigableSet<String> tail = keys;
+			if( after != null && (from == null || after.compareTo(from) >= 0) ) {
+				tail = keys.tailSet(after, false);
+			} else if( from != null ) {
+				tail = keys.tailSet(from, true);
+			}
+			List<String> selected = new ArrayList<>();
+			for( String key : tail ) {
+				if( limit != null && selected.size() >= limit
+						|| end != null && key.compareTo(end) >= 0
+						|| prefix != null && !key.startsWith(prefix) ) {
+					break;
+				}
+				selected.add(key);
+			}
+			return selected;
+		}
 	}
 
 }
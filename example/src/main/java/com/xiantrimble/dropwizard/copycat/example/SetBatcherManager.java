@@ -0,0 +1,62 @@
+/**
+ * Copyright (C) 2015 Christian Trimble (xiantrimble@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xiantrimble.dropwizard.copycat.example;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import com.xiantrimble.dropwizard.copycat.CommandBatcher;
+import com.xiantrimble.dropwizard.copycat.CopycatConfiguration;
+import com.xiantrimble.dropwizard.copycat.example.ExampleStateMachine.SetValue;
+
+import io.atomix.copycat.client.CopycatClient;
+import io.dropwizard.lifecycle.Managed;
+
+/**
+ * Drains and closes the set batchers when the application stops.  It is managed after the Copycat
+ * bundle, so it stops first and pending sets are answered before the client sessions close.
+ */
+@Singleton
+public class SetBatcherManager implements Managed {
+
+  @Inject
+  Map<CopycatClient, CommandBatcher<SetValue, Void>> setBatchers;
+  @Inject
+  CopycatConfiguration configuration;
+
+	@Override
+	public void start() throws Exception {
+	}
+
+	@Override
+	public void stop() throws Exception {
+		System.out.println("stopping set batchers");
+		long timeout = configuration.getClient().getRequestTimeout().toMilliseconds();
+		for( CommandBatcher<SetValue, Void> batcher : setBatchers.values() ) {
+			try {
+				batcher.drain().get(timeout, TimeUnit.MILLISECONDS);
+			} catch( TimeoutException e ) {
+				System.out.println("set batcher did not drain before the request timeout");
+			} finally {
+				batcher.close();
+			}
+		}
+	}
+}
@@ -1,48 +1,368 @@
 package com.xiantrimble.dropwizard.copycat.example.resource;
 
-import java.util.Set;
-import java.util.concurrent.ExecutionException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import javax.ws.rs.BadRequestException;
 import javax.ws.rs.Consumes;
+import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
+import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.ServiceUnavailableException;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xiantrimble.dropwizard.copycat.ClientConfiguration;
+import com.xiantrimble.dropwizard.copycat.CommandBatcher;
+import com.xiantrimble.dropwizard.copycat.CopycatConfiguration;
+import com.xiantrimble.dropwizard.copycat.CopycatPartitions;
+import com.xiantrimble.dropwizard.copycat.HedgedQueries;
+import com.xiantrimble.dropwizard.copycat.WindowedSubmitter;
+import com.xiantrimble.dropwizard.copycat.example.CopycatExampleConfiguration;
 import com.xiantrimble.dropwizard.copycat.example.ExampleStateMachine;
 
+import io.atomix.copycat.Query.ConsistencyLevel;
 import io.atomix.copycat.client.CopycatClient;
 
 /**
- * An example resource that allows management of keys and JSON values.
+ * An example resource that allows management of keys and JSON values.  Requests are suspended
+ * while their operation is submitted, so waiting on the cluster does not hold a request thread.
+ * 
+ * Each key belongs to one of the partitions, and its operations go to that partition's group.
+ * Reads are spread over the partition's sessions, and sequential reads of a key are hedged
+ * when hedging is enabled.  Writes of a key go through the partition's session for the key, with
+ * sets through that session's batcher, so writes are spread over the sessions too.  Deletes, bulk
+ * writes and imports first flush the sets pending in their session's batcher, so with key affinity
+ * routing the writes of a key are applied in the order they were received.  Listing the keys
+ * queries every partition.
+ * 
+ * Keys are listed in order, a page at a time, and can be limited with the prefix, start (inclusive)
+ * and end (exclusive) parameters.  A page holds the configured page size of keys, or the limit
+ * parameter's, up to the configured maximum page size.  When the page is full, the response links
+ * to the next page, which continues after the page's last key.
+ * 
+ * Several keys can be read with POST /keys/_mget, and set and deleted with POST /keys/_bulk.
+ * These cost one query per partition, or one or two commands per write session, rather than one
+ * per key.
+ * 
+ * Large loads can be streamed to POST /keys/_import as newline delimited JSON, one
+ * {"key": ..., "value": ...} record per line, e.g.
+ * curl -H 'Content-Type: application/x-ndjson' --data-binary @records.ndjson.  Records are read one
+ * at a time, set in batches of the configured batch size, and each write session keeps at most the
+ * configured submit window of batches in flight.  When the window is full, reading the body waits,
+ * so the client is held back by the cluster's replication.  An import is not atomic: a failed
+ * import leaves the batches before the failure set.
+ * 
+ * Reads use the configured consistency level, unless the request asks for another with the
+ * consistency parameter, e.g. ?consistency=sequential.
  */
 @Singleton
 @Path("keys")
 public class StateMachineResource {
   @Inject
-  public CopycatClient client;
+  public CopycatPartitions partitions;
+  @Inject
+  public HedgedQueries hedgedQueries;
+  @Inject
+  public CopycatConfiguration configuration;
+  @Inject
+  public CopycatExampleConfiguration exampleConfiguration;
+  @Inject
+  public Map<CopycatClient, CommandBatcher<ExampleStateMachine.SetValue, Void>> setBatchers;
+  
+  private static ObjectMapper mapper = new ObjectMapper();
   
   @GET
   @Produces("application/json")
-  public Set<String> getKeys() throws InterruptedException, ExecutionException {
-	  return client.submit(new ExampleStateMachine.GetKeys()).get();
+  public void getKeys( @QueryParam("consistency") String consistency, @QueryParam("prefix") String prefix,
+		  @QueryParam("start") String start, @QueryParam("end") String end, @QueryParam("after") String after,
+		  @QueryParam("limit") Integer limit, @Context UriInfo uriInfo, @Suspended AsyncResponse response ) {
+	  ConsistencyLevel level = consistency(consistency);
+	  int pageSize = pageSize(limit);
+	  resume(response, partitions.submitAll(()->new ExampleStateMachine.GetKeys()
+			  .withConsistency(level)
+			  .withPrefix(prefix)
+			  .withStart(start)
+			  .withEnd(end)
+			  .withAfter(after)
+			  .withLimit(pageSize))
+			  .thenApply(pages->{
+				  // each partition returns its own first page, so the merged page is the first pageSize keys of them.
+				  List<String> keys = pages.stream()
+						  .flatMap(List::stream)
+						  .sorted()
+						  .limit(pageSize)
+						  .collect(Collectors.toList());
+				  Response.ResponseBuilder builder = Response.ok(keys, MediaType.APPLICATION_JSON_TYPE);
+				  if( keys.size() == pageSize ) {
+					  builder.link(uriInfo.getRequestUriBuilder().replaceQueryParam("after", keys.get(keys.size() - 1)).build(), "next");
+				  }
+				  return builder.build();
+			  }));
   }
   
   @GET
   @Path("{key}")
   @Produces("application/json")
-  public JsonNode get( @PathParam("key") String key) throws InterruptedException, ExecutionException {
-	  return client.submit(new ExampleStateMachine.GetValue().withKey(key)).get();
+  public void get( @PathParam("key") String key, @QueryParam("consistency") String consistency, @Suspended AsyncResponse response ) {
+	  resume(response, hedgedQueries.submit(key, new ExampleStateMachine.GetValue().withKey(key).withConsistency(consistency(consistency))));
   }
   
   @PUT
   @Path("{key}")
   @Consumes("application/json")
-  public void set( @PathParam("key") String key, JsonNode value ) throws InterruptedException, ExecutionException {
-	  client.submit(new ExampleStateMachine.SetValue().withKey(key).withNode(value)).get();
+  public void set( @PathParam("key") String key, JsonNode value, @Suspended AsyncResponse response ) {
+	  resume(response, setBatchers.get(writeClient(key)).submit(new ExampleStateMachine.SetValue().withKey(key).withNode(value))
+			  .thenApply(result->Response.noContent().build()));
+  }
+  
+  /**
+   * Reads the keys in the request body, a JSON array, and responds with an object of the keys that
+   * are set and their values.
+   */
+  @POST
+  @Path("_mget")
+  @Consumes("application/json")
+  @Produces("application/json")
+  public void getAll( List<String> keys, @QueryParam("consistency") String consistency, @Suspended AsyncResponse response ) {
+	  ConsistencyLevel level = consistency(consistency);
+	  if( keys == null ) {
+		  throw new BadRequestException("an array of keys is required");
+	  }
+	  if( keys.contains(null) ) {
+		  throw new BadRequestException("keys must not be null");
+	  }
+	  List<CompletableFuture<Map<String, JsonNode>>> results = new ArrayList<>();
+	  partitions.group(new LinkedHashSet<>(keys)).forEach((partition, partitionKeys)->
+			  results.add(partitions.getPools().get(partition).submit(new ExampleStateMachine.MultiGetValue(partitionKeys).withConsistency(level))));
+	  resume(response, CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[results.size()]))
+			  .thenApply(done->{
+				  Map<String, JsonNode> values = new TreeMap<>();
+				  results.forEach(result->values.putAll(result.join()));
+				  return values;
+			  }));
+  }
+  
+  /**
+   * Sets and deletes the keys in the request body.  The sets and the deletes of each write session
+   * are each one command, on the session the keys' writes go through.
+   */
+  @POST
+  @Path("_bulk")
+  @Consumes("application/json")
+  public void bulk( BulkRequest bulk, @Suspended AsyncResponse response ) {
+	  if( bulk == null ) {
+		  throw new BadRequestException("a bulk request is required");
+	  }
+	  if( bulk.getSet().containsKey(null) || bulk.getDelete().contains(null) ) {
+		  throw new BadRequestException("keys must not be null");
+	  }
+	  for( String key : bulk.getDelete() ) {
+		  if( bulk.getSet().containsKey(key) ) {
+			  throw new BadRequestException("key "+key+" is both set and deleted");
+		  }
+	  }
+	  List<CompletableFuture<?>> results = new ArrayList<>();
+	  writeClients(bulk.getSet().keySet()).forEach((client, keys)->{
+		  List<ExampleStateMachine.SetValue> sets = new ArrayList<>(keys.size());
+		  for( String key : keys ) {
+			  sets.add(new ExampleStateMachine.SetValue().withKey(key).withNode(bulk.getSet().get(key)));
+		  }
+		  results.add(flushed(client).submit(new ExampleStateMachine.MultiSetValue(sets)));
+	  });
+	  writeClients(new LinkedHashSet<>(bulk.getDelete())).forEach((client, keys)->
+			  results.add(flushed(client).submit(new ExampleStateMachine.MultiDeleteValue(keys))));
+	  resume(response, CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[results.size()]))
+			  .thenApply(done->Response.noContent().build()));
+  }
+  
+  /**
+   * Imports the newline delimited records of the request body, responding with the number of
+   * records imported.  This holds its request thread until the last batch is applied.
+   */
+  @POST
+  @Path("_import")
+  @Consumes({"application/x-ndjson", "text/plain"})
+  @Produces("application/json")
+  public Map<String, Long> importRecords( InputStream body ) throws IOException, InterruptedException {
+	  ClientConfiguration clientConfiguration = configuration.getClient();
+	  int batchSize = clientConfiguration.getBatchSize();
+	  Map<CopycatClient, WindowedSubmitter> submitters = new LinkedHashMap<>();
+	  Map<CopycatClient, List<ExampleStateMachine.SetValue>> batches = new HashMap<>();
+	  
+	  long records = 0;
+	  try( MappingIterator<ImportRecord> iterator = mapper.readerFor(ImportRecord.class).readValues(body) ) {
+		  while( iterator.hasNextValue() ) {
+			  ImportRecord record = iterator.nextValue();
+			  if( record.getKey() == null ) {
+				  throw new BadRequestException("record "+(records + 1)+" has no key");
+			  }
+			  CopycatClient client = writeClient(record.getKey());
+			  List<ExampleStateMachine.SetValue> batch = batches.computeIfAbsent(client, session->new ArrayList<>(batchSize));
+			  batch.add(new ExampleStateMachine.SetValue().withKey(record.getKey()).withNode(record.getValue()));
+			  if( batch.size() >= batchSize ) {
+				  submitters.computeIfAbsent(client, session->new WindowedSubmitter(flushed(session), clientConfiguration.getSubmitWindow()))
+						  .submit(new ExampleStateMachine.MultiSetValue(batch));
+				  batches.remove(client);
+			  }
+			  records++;
+		  }
+	  }
+	  
+	  for( Map.Entry<CopycatClient, List<ExampleStateMachine.SetValue>> batch : batches.entrySet() ) {
+		  submitters.computeIfAbsent(batch.getKey(), session->new WindowedSubmitter(flushed(session), clientConfiguration.getSubmitWindow()))
+				  .submit(new ExampleStateMachine.MultiSetValue(batch.getValue()));
+	  }
+	  for( WindowedSubmitter submitter : submitters.values() ) {
+		  submitter.flush();
+	  }
+	  return Collections.singletonMap("records", records);
+  }
+  
+  @DELETE
+  @Path("{key}")
+  public void delete( @PathParam("key") String key, @Suspended AsyncResponse response ) {
+	  resume(response, flushed(writeClient(key)).submit(new ExampleStateMachine.DeleteValue().withKey(key))
+			  .thenApply(result->Response.noContent().build()));
+  }
+  
+  /**
+   * Returns the session writes of the key go through, from the pool of the key's partition.  Its
+   * set batcher uses the same session.
+   */
+  CopycatClient writeClient( String key ) {
+	  return partitions.pool(key).client(key);
+  }
+  
+  /**
+   * Submits the sets pending in the session's batcher, so commands submitted to the session next
+   * follow them, and returns the session.
+   */
+  CopycatClient flushed( CopycatClient client ) {
+	  setBatchers.get(client).flush();
+	  return client;
+  }
+  
+  /**
+   * Groups the keys by the session their writes go through.
+   */
+  Map<CopycatClient, List<String>> writeClients( Collection<String> keys ) {
+	  Map<CopycatClient, List<String>> clients = new LinkedHashMap<>();
+	  for( String key : keys ) {
+		  clients.computeIfAbsent(writeClient(key), client->new ArrayList<>()).add(key);
+	  }
+	  return clients;
+  }
+  
+  /**
+   * Returns the size of a page of keys: the requested limit, up to the configured maximum, or
+   * the configured page size if no limit was requested.
+   */
+  int pageSize( Integer limit ) {
+	  CopycatExampleConfiguration.KeysConfiguration keys = exampleConfiguration.getKeys();
+	  if( limit == null ) {
+		  return Math.min(keys.getPageSize(), keys.getMaxPageSize());
+	  }
+	  if( limit < 1 ) {
+		  throw new BadRequestException("limit must be at least 1");
+	  }
+	  return Math.min(limit, keys.getMaxPageSize());
+  }
+  
+  /**
+   * Returns the requested consistency level, or the configured level if none was requested.
+   */
+  ConsistencyLevel consistency( String consistency ) {
+	  if( consistency == null ) {
+		  return configuration.getClient().getConsistency();
+	  }
+	  try {
+		  return ConsistencyLevel.valueOf(consistency.trim().toUpperCase());
+	  } catch( IllegalArgumentException e ) {
+		  throw new BadRequestException("unknown consistency level "+consistency);
+	  }
+  }
+  
+  /**
+   * Resumes the response when the future completes, or with a 503 if the request timeout passes
+   * first.
+   */
+  <T> void resume( AsyncResponse response, CompletableFuture<T> future ) {
+	  response.setTimeoutHandler(timedOut->timedOut.resume(new ServiceUnavailableException("copycat request timed out")));
+	  response.setTimeout(configuration.getClient().getRequestTimeout().toMilliseconds(), TimeUnit.MILLISECONDS);
+	  future.whenComplete((result, error)->{
+		  if( error != null ) {
+			  response.resume(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+		  } else {
+			  response.resume(result);
+		  }
+	  });
+  }
+  
+  /**
+   * A record of an import.
+   */
+  public static class ImportRecord {
+	  private String key;
+	  private JsonNode value;
+	  public String getKey() {
+		  return key;
+	  }
+	  public void setKey( String key ) {
+		  this.key = key;
+	  }
+	  public JsonNode getValue() {
+		  return value;
+	  }
+	  public void setValue( JsonNode value ) {
+		  this.value = value;
+	  }
+  }
+  
+  /**
+   * The body of a bulk request: the values to set, by key, and the keys to delete.
+   */
+  public static class BulkRequest {
+	  private Map<String, JsonNode> set = new HashMap<>();
+	  private List<String> delete = new ArrayList<>();
+	  public Map<String, JsonNode> getSet() {
+		  return set;
+	  }
+	  public void setSet( Map<String, JsonNode> set ) {
+		  this.set = set != null ? set : new HashMap<>();
+	  }
+	  public List<String> getDelete() {
+		  return delete;
+	  }
+	  public void setDelete( List<String> delete ) {
+		  this.delete = delete != null ? delete : new ArrayList<>();
+	  }
   }
 }
@@ -0,0 +1,78 @@
+package com.xiantrimble.dropwizard.copycat.example;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+
+import java.util.Arrays;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+/**
+ * Tests for selecting a page of keys.
+ *
+ * @author Christian Trimble
+ */
+public class GetKeysTest {
+  NavigableSet<String> keys = new TreeSet<>(Arrays.asList("a", "b/1", "b/2", "b/3", "c", "d"));
+
+  @Test
+  public void selectsAllKeys() {
+    assertThat(new ExampleStateMachine.GetKeys().select(keys), contains("a", "b/1", "b/2", "b/3", "c", "d"));
+  }
+
+  @Test
+  public void selectsKeysWithPrefix() {
+    assertThat(new ExampleStateMachine.GetKeys().withPrefix("b/").select(keys), contains("b/1", "b/2", "b/3"));
+  }
+
+  @Test
+  public void selectsFromStartInclusive() {
+    assertThat(new ExampleStateMachine.GetKeys().withStart("b/2").select(keys), contains("b/2", "b/3", "c", "d"));
+  }
+
+  @Test
+  public void selectsToEndExclusive() {
+    assertThat(new ExampleStateMachine.GetKeys().withEnd("c").select(keys), contains("a", "b/1", "b/2", "b/3"));
+  }
+
+  @Test
+  public void selectsAfterCursorExclusive() {
+    assertThat(new ExampleStateMachine.GetKeys().withAfter("b/2").select(keys), contains("b/3", "c", "d"));
+  }
+
+  @Test
+  public void ignoresCursorBeforeStart() {
+    assertThat(new ExampleStateMachine.GetKeys().withStart("c").withAfter("a").select(keys), contains("c", "d"));
+  }
+
+  @Test
+  public void ignoresCursorBeforePrefix() {
+    assertThat(new ExampleStateMachine.GetKeys().withPrefix("b/").withAfter("a").select(keys), contains("b/1", "b/2", "b/3"));
+  }
+
+  @Test
+  public void selectsPrefixAfterStart() {
+    assertThat(new ExampleStateMachine.GetKeys().withPrefix("b/").withStart("b/2").select(keys), contains("b/2", "b/3"));
+  }
+
+  @Test
+  public void selectsPrefixAfterCursor() {
+    assertThat(new ExampleStateMachine.GetKeys().withPrefix("b/").withAfter("b/1").select(keys), contains("b/2", "b/3"));
+  }
+
+  @Test
+  public void selectsUpToLimit() {
+    assertThat(new ExampleStateMachine.GetKeys().withLimit(2).select(keys), contains("a", "b/1"));
+    assertThat(new ExampleStateMachine.GetKeys().withAfter("b/1").withLimit(2).select(keys), contains("b/2", "b/3"));
+  }
+
+  @Test
+  public void selectsNothingPastTheLastKey() {
+    assertThat(new ExampleStateMachine.GetKeys().withAfter("d").select(keys), empty());
+    assertThat(new ExampleStateMachine.GetKeys().withPrefix("e").select(keys), empty());
+    assertThat(new ExampleStateMachine.GetKeys().withStart("b/2").withEnd("b/2").select(keys), empty());
+  }
+}
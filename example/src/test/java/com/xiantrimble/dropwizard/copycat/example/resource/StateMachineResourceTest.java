@@ -0,0 +1,39 @@
+package com.xiantrimble.dropwizard.copycat.example.resource;
+
+import java.util.Arrays;
+
+import javax.ws.rs.BadRequestException;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.squarespace.jersey2.guice.JerseyGuiceUtils;
+
+/**
+ * Tests for rejecting malformed multi-key requests before they reach the cluster.
+ *
+ * @author Christian Trimble
+ */
+public class StateMachineResourceTest {
+  StateMachineResource resource = new StateMachineResource();
+
+  /**
+   * Lets Jersey build its exceptions without the injector the guice bundle installs.
+   */
+  @BeforeClass
+  public static void resetJersey() {
+    JerseyGuiceUtils.reset();
+  }
+
+  @Test(expected = BadRequestException.class)
+  public void rejectsNullKeysToGet() {
+    resource.getAll(Arrays.asList("a", null), "sequential", null);
+  }
+
+  @Test(expected = BadRequestException.class)
+  public void rejectsNullKeysToDelete() {
+    StateMachineResource.BulkRequest bulk = new StateMachineResource.BulkRequest();
+    bulk.setDelete(Arrays.asList("a", null));
+    resource.bulk(bulk, null);
+  }
+}
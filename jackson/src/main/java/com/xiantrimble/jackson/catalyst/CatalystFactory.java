@@ -0,0 +1,69 @@
+/**
+ * Copyright (C) 2015 Christian Trimble (xiantrimble@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xiantrimble.jackson.catalyst;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+
+import io.atomix.catalyst.buffer.BufferInput;
+import io.atomix.catalyst.buffer.BufferOutput;
+
+/**
+ * Creates Jackson generators and parsers that write to and read from Catalyst buffers.  Any
+ * Jackson factory can be used, so the same buffers can hold JSON, Smile, or another binary format.
+ *
+ * Each thread reuses one pair of streams, so creating a generator or parser does not allocate a
+ * stream or copy the value into an intermediate byte array.  Closing the generator or parser
+ * finishes the value in the buffer and must always be done, usually with try-with-resources.
+ *
+ * @author Christian Trimble
+ */
+public class CatalystFactory {
+  private final JsonFactory factory;
+  private final ThreadLocal<CatalystOutputStream> outputs = ThreadLocal.withInitial(CatalystOutputStream::new);
+  private final ThreadLocal<CatalystInputStream> inputs = ThreadLocal.withInitial(CatalystInputStream::new);
+
+  public CatalystFactory(JsonFactory factory) {
+    this.factory = factory;
+  }
+
+  public JsonFactory getJsonFactory() {
+    return factory;
+  }
+
+  public JsonGenerator createGenerator(BufferOutput<?> buffer) throws IOException {
+    CatalystOutputStream out = outputs.get();
+    if (out.isOpen()) {
+      // a value is already being written on this thread.
+      out = new CatalystOutputStream();
+    }
+    return factory.createGenerator(out.reset(buffer))
+        .enable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+  }
+
+  public JsonParser createParser(BufferInput<?> buffer) throws IOException {
+    CatalystInputStream in = inputs.get();
+    if (in.isOpen()) {
+      // a value is already being read on this thread.
+      in = new CatalystInputStream();
+    }
+    return factory.createParser(in.reset(buffer))
+        .enable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+  }
+}
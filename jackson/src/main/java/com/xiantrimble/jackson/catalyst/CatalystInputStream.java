@@ -0,0 +1,121 @@
+/**
+ * Copyright (C) 2015 Christian Trimble (xiantrimble@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xiantrimble.jackson.catalyst;
+
+import java.io.InputStream;
+
+import io.atomix.catalyst.buffer.BufferInput;
+
+/**
+ * An input stream that reads a value written by a {@link CatalystOutputStream} directly from a
+ * Catalyst buffer.  The stream ends at the end of the value, so parsers that read ahead cannot
+ * consume bytes that belong to the next value in the buffer.  Closing the stream skips anything
+ * that was not read, leaving the buffer positioned after the value.  Closing the stream does not
+ * close the buffer.
+ *
+ * Streams can be reset and reused, so a thread does not need a new stream for every value.
+ *
+ * @author Christian Trimble
+ */
+public class CatalystInputStream extends InputStream {
+  private static final int END = -1;
+
+  private BufferInput<?> buffer;
+  private int remaining;
+
+  public CatalystInputStream() {
+  }
+
+  public CatalystInputStream(BufferInput<?> buffer) {
+    this.buffer = buffer;
+  }
+
+  /**
+   * Starts reading the next value in the buffer.
+   */
+  public CatalystInputStream reset(BufferInput<?> buffer) {
+    this.buffer = buffer;
+    this.remaining = 0;
+    return this;
+  }
+
+  /**
+   * Returns true if a value is being read and the stream has not been closed.
+   */
+  public boolean isOpen() {
+    return buffer != null;
+  }
+
+  private boolean nextChunk() {
+    if (remaining == 0) {
+      remaining = buffer.readInt();
+      if (remaining == 0) {
+        remaining = END;
+      }
+    }
+    return remaining != END;
+  }
+
+  @Override
+  public int read() {
+    if (!nextChunk()) {
+      return -1;
+    }
+    remaining--;
+    return buffer.readUnsignedByte();
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) {
+    if (len == 0) {
+      return 0;
+    }
+    if (!nextChunk()) {
+      return -1;
+    }
+    int read = Math.min(len, remaining);
+    buffer.read(b, off, read);
+    remaining -= read;
+    return read;
+  }
+
+  @Override
+  public long skip(long n) {
+    if (n <= 0 || !nextChunk()) {
+      return 0;
+    }
+    int skipped = (int) Math.min(n, remaining);
+    buffer.skip(skipped);
+    remaining -= skipped;
+    return skipped;
+  }
+
+  @Override
+  public int available() {
+    return Math.max(remaining, 0);
+  }
+
+  @Override
+  public void close() {
+    if (buffer != null) {
+      while (nextChunk()) {
+        buffer.skip(remaining);
+        remaining = 0;
+      }
+      buffer = null;
+    }
+  }
+}
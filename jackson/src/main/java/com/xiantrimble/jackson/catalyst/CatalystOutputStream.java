@@ -0,0 +1,82 @@
+/**
+ * Copyright (C) 2015 Christian Trimble (xiantrimble@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xiantrimble.jackson.catalyst;
+
+import java.io.OutputStream;
+
+import io.atomix.catalyst.buffer.BufferOutput;
+
+/**
+ * An output stream that writes directly to a Catalyst buffer.  Bytes are written as length prefixed
+ * chunks and closing the stream writes an empty chunk, so a reader can find the end of the value
+ * without the writer knowing its length up front.  Closing the stream does not close the buffer.
+ *
+ * Streams can be reset and reused, so a thread does not need a new stream for every value.
+ *
+ * @author Christian Trimble
+ */
+public class CatalystOutputStream extends OutputStream {
+  private BufferOutput<?> buffer;
+
+  public CatalystOutputStream() {
+  }
+
+  public CatalystOutputStream(BufferOutput<?> buffer) {
+    this.buffer = buffer;
+  }
+
+  /**
+   * Starts a new value in the buffer.
+   */
+  public CatalystOutputStream reset(BufferOutput<?> buffer) {
+    this.buffer = buffer;
+    return this;
+  }
+
+  /**
+   * Returns true if a value is being written and the stream has not been closed.
+   */
+  public boolean isOpen() {
+    return buffer != null;
+  }
+
+  @Override
+  public void write(int b) {
+    buffer.writeInt(1).writeByte(b);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) {
+    if (len > 0) {
+      buffer.writeInt(len).write(b, off, len);
+    }
+  }
+
+  /**
+   * Flushing is left to the owner of the buffer, since the buffer may be a file.
+   */
+  @Override
+  public void flush() {
+  }
+
+  @Override
+  public void close() {
+    if (buffer != null) {
+      buffer.writeInt(0);
+      buffer = null;
+    }
+  }
+}
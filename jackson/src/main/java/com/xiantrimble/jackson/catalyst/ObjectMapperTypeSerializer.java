@@ -0,0 +1,75 @@
+/**
+ * Copyright (C) 2015 Christian Trimble (xiantrimble@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xiantrimble.jackson.catalyst;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import io.atomix.catalyst.buffer.BufferInput;
+import io.atomix.catalyst.buffer.BufferOutput;
+import io.atomix.catalyst.serializer.SerializationException;
+import io.atomix.catalyst.serializer.Serializer;
+import io.atomix.catalyst.serializer.TypeSerializer;
+
+/**
+ * A Catalyst type serializer that uses an object mapper to read and write values directly to
+ * Catalyst buffers.  Readers and writers are cached for each type that passes through the
+ * serializer.
+ *
+ * @author Christian Trimble
+ */
+public class ObjectMapperTypeSerializer<T> implements TypeSerializer<T> {
+  private final ObjectMapper mapper;
+  private final CatalystFactory factory;
+  private final ConcurrentMap<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+  private final ConcurrentMap<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+  public ObjectMapperTypeSerializer(ObjectMapper mapper) {
+    this.mapper = mapper;
+    this.factory = new CatalystFactory(mapper.getFactory());
+  }
+
+  public ObjectMapper getMapper() {
+    return mapper;
+  }
+
+  @Override
+  public void write(T object, @SuppressWarnings("rawtypes") BufferOutput buffer, Serializer serializer) {
+    ObjectWriter writer = writers.computeIfAbsent(object.getClass(), mapper::writerFor);
+    try (JsonGenerator generator = factory.createGenerator(buffer)) {
+      writer.writeValue(generator, object);
+    } catch (IOException e) {
+      throw new SerializationException(e);
+    }
+  }
+
+  @Override
+  public T read(Class<T> type, @SuppressWarnings("rawtypes") BufferInput buffer, Serializer serializer) {
+    ObjectReader reader = readers.computeIfAbsent(type, mapper::readerFor);
+    try (JsonParser parser = factory.createParser(buffer)) {
+      return reader.readValue(parser);
+    } catch (IOException e) {
+      throw new SerializationException(e);
+    }
+  }
+}
@@ -0,0 +1,143 @@
+package com.xiantrimble.jackson.catalyst;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xiantrimble.jackson.catalyst.ObjectMapperTypeSerializerTest.Value;
+
+import io.atomix.catalyst.buffer.Buffer;
+import io.atomix.catalyst.buffer.BufferInput;
+import io.atomix.catalyst.buffer.BufferInputStream;
+import io.atomix.catalyst.buffer.BufferOutput;
+import io.atomix.catalyst.buffer.BufferOutputStream;
+import io.atomix.catalyst.buffer.HeapBuffer;
+import io.atomix.catalyst.serializer.SerializationException;
+import io.atomix.catalyst.serializer.Serializer;
+import io.atomix.catalyst.serializer.TypeSerializer;
+
+/**
+ * Measures the bytes allocated to write and read one value with the object mapper type serializer,
+ * with a serializer that wraps each buffer in a Catalyst stream adapter, and with a serializer that
+ * copies each value through a byte array.
+ *
+ * Run the main method to print the results.
+ *
+ * @author Christian Trimble
+ */
+public class AllocationBenchmark {
+  static final int WARMUP = 50_000;
+  static final int ITERATIONS = 100_000;
+
+  public static void main(String[] args) {
+    ObjectMapper mapper = new ObjectMapper();
+    Value value = new Value("key", Arrays.asList("alpha", "beta", "gamma", "delta"));
+
+    long bytes = bytesPerValue(new ByteArrayTypeSerializer(mapper), value);
+    long adapter = bytesPerValue(new StreamAdapterTypeSerializer(mapper), value);
+    long direct = bytesPerValue(new ObjectMapperTypeSerializer<Value>(mapper), value);
+
+    System.out.printf("byte array:          %,d bytes/value%n", bytes);
+    System.out.printf("stream adapter:      %,d bytes/value%n", adapter);
+    System.out.printf("object mapper:       %,d bytes/value%n", direct);
+  }
+
+  /**
+   * Returns the bytes allocated by the current thread to write and read the value once.
+   */
+  public static long bytesPerValue(TypeSerializer<Value> typeSerializer, Value value) {
+    Serializer serializer = new Serializer();
+    Buffer buffer = HeapBuffer.allocate(4096);
+    for (int i = 0; i < WARMUP; i++) {
+      roundTrip(typeSerializer, serializer, buffer, value);
+    }
+    long start = allocatedBytes();
+    for (int i = 0; i < ITERATIONS; i++) {
+      roundTrip(typeSerializer, serializer, buffer, value);
+    }
+    return (allocatedBytes() - start) / ITERATIONS;
+  }
+
+  static void roundTrip(TypeSerializer<Value> typeSerializer, Serializer serializer, Buffer buffer, Value value) {
+    buffer.clear();
+    typeSerializer.write(value, buffer, serializer);
+    buffer.flip();
+    typeSerializer.read(Value.class, buffer, serializer);
+  }
+
+  static long allocatedBytes() {
+    return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+        .getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  /**
+   * Wraps each buffer in a new stream and reads values through the mapper, like the generic Jackson
+   * serializer in the bundle tests.
+   */
+  public static class StreamAdapterTypeSerializer implements TypeSerializer<Value> {
+    private final ObjectMapper mapper;
+
+    public StreamAdapterTypeSerializer(ObjectMapper mapper) {
+      this.mapper = mapper.copy()
+          .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false)
+          .configure(JsonParser.Feature.AUTO_CLOSE_SOURCE, false);
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    public void write(Value object, BufferOutput buffer, Serializer serializer) {
+      try {
+        mapper.writeValue(new BufferOutputStream(buffer), object);
+      } catch (IOException e) {
+        throw new SerializationException(e);
+      }
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    public Value read(Class<Value> type, BufferInput buffer, Serializer serializer) {
+      try {
+        return mapper.readValue(new BufferInputStream(buffer), type);
+      } catch (IOException e) {
+        throw new SerializationException(e);
+      }
+    }
+  }
+
+  /**
+   * Writes each value to a byte array and copies it into the buffer with a length prefix.
+   */
+  public static class ByteArrayTypeSerializer implements TypeSerializer<Value> {
+    private final ObjectMapper mapper;
+
+    public ByteArrayTypeSerializer(ObjectMapper mapper) {
+      this.mapper = mapper;
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    public void write(Value object, BufferOutput buffer, Serializer serializer) {
+      try {
+        byte[] bytes = mapper.writeValueAsBytes(object);
+        buffer.writeInt(bytes.length).write(bytes);
+      } catch (IOException e) {
+        throw new SerializationException(e);
+      }
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    public Value read(Class<Value> type, BufferInput buffer, Serializer serializer) {
+      try {
+        byte[] bytes = new byte[buffer.readInt()];
+        buffer.read(bytes);
+        return mapper.readValue(bytes, type);
+      } catch (IOException e) {
+        throw new SerializationException(e);
+      }
+    }
+  }
+}
@@ -0,0 +1,142 @@
+package com.xiantrimble.jackson.catalyst;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.atomix.catalyst.buffer.Buffer;
+import io.atomix.catalyst.buffer.HeapBuffer;
+import io.atomix.catalyst.serializer.Serializer;
+
+/**
+ * Tests for the object mapper type serializer and the Catalyst streams under it.
+ *
+ * @author Christian Trimble
+ */
+public class ObjectMapperTypeSerializerTest {
+
+  ObjectMapper mapper = new ObjectMapper();
+  Serializer serializer = new Serializer().register(Value.class, 1, cls -> new ObjectMapperTypeSerializer<>(mapper));
+
+  @Test
+  public void roundTripsValues() {
+    Value value = new Value("key", Arrays.asList("a", "b", "c"));
+
+    Buffer buffer = serializer.writeObject(value).flip();
+    Value result = serializer.readObject(buffer);
+
+    assertThat(result, equalTo(value));
+  }
+
+  @Test
+  public void leavesFollowingValuesReadable() {
+    Buffer buffer = serializer.allocate();
+    serializer.writeObject(new Value("first", Arrays.asList("a")), buffer);
+    serializer.writeObject(new Value("second", Arrays.asList("b")), buffer);
+    serializer.writeObject("after", buffer);
+    buffer.flip();
+
+    assertThat(serializer.readObject(buffer), equalTo(new Value("first", Arrays.asList("a"))));
+    assertThat(serializer.readObject(buffer), equalTo(new Value("second", Arrays.asList("b"))));
+    assertThat(serializer.readObject(buffer), equalTo("after"));
+  }
+
+  @Test
+  public void roundTripsValuesLargerThanGeneratorBuffer() {
+    char[] chars = new char[100_000];
+    Arrays.fill(chars, 'x');
+    Value value = new Value(new String(chars), Arrays.asList("a"));
+
+    Buffer buffer = serializer.allocate();
+    serializer.writeObject(value, buffer);
+    serializer.writeObject("after", buffer);
+    buffer.flip();
+
+    assertThat(serializer.readObject(buffer), equalTo(value));
+    assertThat(serializer.readObject(buffer), equalTo("after"));
+  }
+
+  @Test
+  public void skipsUnreadContentOnClose() throws Exception {
+    CatalystFactory factory = new CatalystFactory(mapper.getFactory());
+    Buffer buffer = HeapBuffer.allocate();
+    try (JsonGenerator generator = factory.createGenerator(buffer)) {
+      mapper.writeValue(generator, new Value("key", Arrays.asList("a", "b")));
+    }
+    buffer.writeInt(42).flip();
+
+    try (JsonParser parser = factory.createParser(buffer)) {
+      parser.nextToken();
+    }
+
+    assertThat(buffer.readInt(), equalTo(42));
+  }
+
+  @Test
+  public void writesOtherBuffersWhileAValueIsOpen() throws Exception {
+    CatalystFactory factory = new CatalystFactory(mapper.getFactory());
+    Buffer outerBuffer = HeapBuffer.allocate();
+    Buffer innerBuffer = HeapBuffer.allocate();
+    try (JsonGenerator outer = factory.createGenerator(outerBuffer)) {
+      outer.writeStartArray();
+      outer.writeString("outer");
+      try (JsonGenerator inner = factory.createGenerator(innerBuffer)) {
+        inner.writeString("inner");
+      }
+      outer.writeEndArray();
+    }
+    outerBuffer.flip();
+    innerBuffer.flip();
+
+    try (JsonParser outer = factory.createParser(outerBuffer)) {
+      outer.nextToken();
+      assertThat(outer.nextTextValue(), equalTo("outer"));
+      try (JsonParser inner = factory.createParser(innerBuffer)) {
+        assertThat(inner.nextTextValue(), equalTo("inner"));
+      }
+    }
+  }
+
+  public static class Value {
+    private final String key;
+    private final List<String> values;
+
+    @JsonCreator
+    public Value(@JsonProperty("key") String key, @JsonProperty("values") List<String> values) {
+      this.key = key;
+      this.values = values;
+    }
+
+    public String getKey() {
+      return key;
+    }
+
+    public List<String> getValues() {
+      return values;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Value)) {
+        return false;
+      }
+      Value other = (Value) o;
+      return key.equals(other.key) && values.equals(other.values);
+    }
+
+    @Override
+    public int hashCode() {
+      return key.hashCode() * 31 + values.hashCode();
+    }
+  }
+}